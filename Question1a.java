@@ -33,6 +33,8 @@
 // Input: k = 3, n = 14
 // Output: 4
 
+import java.util.Arrays;
+
 public class Question1a {
 
     // Function to determine the minimum number of measurements required
@@ -55,16 +57,132 @@ public class Question1a {
         
         return attempts;
     }
+
+    // Same answer as findCriticalTemperature in O(k log n) time and O(1) extra space.
+    // With m measurements and k samples we can cover sum(C(m, i)) for i = 1..k levels,
+    // so we binary search the smallest m whose binomial sum reaches n.
+    public static int findCriticalTemperatureFast(int k, int n) {
+        if (n == 0) return 0;
+        if (k <= 0) {
+            throw new IllegalArgumentException("At least one sample is needed to check " + n + " levels");
+        }
+        // More than log2(n) samples never helps: binary search already needs that many
+        k = Math.min(k, maxUsefulSamples(n));
+
+        int low = 1, high = n;
+        while (low < high) {
+            int mid = low + (high - low) / 2;
+            if (levelsCovered(mid, k, n) >= n) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // Number of samples after which extra samples stop reducing the answer
+    private static int maxUsefulSamples(int n) {
+        return 32 - Integer.numberOfLeadingZeros(n);
+    }
+
+    // sum(C(m, i)) for i = 1..k, saturated at limit so the arithmetic never overflows.
+    // Every term we multiply is at most limit (an int), so term * (m - i + 1) fits in a long.
+    private static long levelsCovered(int m, int k, int limit) {
+        long term = 1, sum = 0;
+        for (int i = 1; i <= k && i <= m; i++) {
+            term = term * (m - i + 1) / i; // C(m, i) from C(m, i - 1), division is exact
+            sum += term;
+            if (sum >= limit) return limit;
+        }
+        return sum;
+    }
+
+    // Precomputed table shared by many (k, n) queries.
+    // covered[i][m - 1] is the number of levels i samples can cover with m measurements,
+    // stored only until it passes Integer.MAX_VALUE, so every int n has an answer in its row.
+    // One sample is the linear case (answer = n) and needs no row.
+    static class MeasurementTable {
+        private static final int MAX_SAMPLES = 31; // maxUsefulSamples(Integer.MAX_VALUE)
+        private final int[][] covered = new int[MAX_SAMPLES + 1][];
+
+        public MeasurementTable() {
+            int[] length = new int[MAX_SAMPLES + 1];
+            for (int i = 2; i <= MAX_SAMPLES; i++) covered[i] = new int[16];
+
+            // Rolling row of the original DP: row[i] = levels covered with i samples
+            long[] row = new long[MAX_SAMPLES + 1];
+            int unfinished = MAX_SAMPLES - 1;
+            while (unfinished > 0) {
+                for (int i = MAX_SAMPLES; i >= 1; i--) {
+                    row[i] = Math.min(row[i - 1] + row[i] + 1, Integer.MAX_VALUE);
+                }
+                for (int i = 2; i <= MAX_SAMPLES; i++) {
+                    if (length[i] > 0 && covered[i][length[i] - 1] == Integer.MAX_VALUE) continue;
+                    if (length[i] == covered[i].length) {
+                        covered[i] = Arrays.copyOf(covered[i], length[i] * 2);
+                    }
+                    covered[i][length[i]++] = (int) row[i];
+                    if (row[i] == Integer.MAX_VALUE) unfinished--;
+                }
+            }
+            for (int i = 2; i <= MAX_SAMPLES; i++) covered[i] = Arrays.copyOf(covered[i], length[i]);
+        }
+
+        // Minimum number of measurements for one query, O(log n) after construction
+        public int query(int k, int n) {
+            if (n == 0) return 0;
+            if (k <= 0) {
+                throw new IllegalArgumentException("At least one sample is needed to check " + n + " levels");
+            }
+            k = Math.min(k, maxUsefulSamples(n));
+            if (k == 1) return n;
+
+            // First index whose coverage reaches n
+            int[] levels = covered[k];
+            int low = 0, high = levels.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (levels[mid] >= n) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low + 1;
+        }
+
+        // Answers ks[i], ns[i] for every i against the same table
+        public int[] queryAll(int[] ks, int[] ns) {
+            if (ks.length != ns.length) {
+                throw new IllegalArgumentException("ks and ns must have the same length");
+            }
+            int[] answers = new int[ks.length];
+            for (int i = 0; i < ks.length; i++) {
+                answers[i] = query(ks[i], ns[i]);
+            }
+            return answers;
+        }
+    }
     
     public static void main(String[] args) {
         // Example test cases
         System.out.println(findCriticalTemperature(1, 2)); // Output: 2
         System.out.println(findCriticalTemperature(2, 6)); // Output: 3
         System.out.println(findCriticalTemperature(3, 14)); // Output: 4
+
+        // Same examples through the fast solver and the shared table
+        System.out.println(findCriticalTemperatureFast(3, 14)); // Output: 4
+        MeasurementTable table = new MeasurementTable();
+        System.out.println(Arrays.toString(table.queryAll(new int[]{1, 2, 3}, new int[]{2, 6, 14}))); // Output: [2, 3, 4]
+        System.out.println(findCriticalTemperatureFast(2, 1_000_000_000)); // Output: 44721
     }
 }
 
 // Outputs
 // 2
 // 3
-// 4
\ No newline at end of file
+// 4
+// 4
+// [2, 3, 4]
+// 44721
\ No newline at end of file
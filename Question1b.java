@@ -39,7 +39,9 @@
 // - returns1 [2] * returns2 [1] = 0 * 4 = 0
 // The 6th smallest investment is 0.
 
+import java.util.Arrays;
 import java.util.PriorityQueue;
+import java.util.Random;
 public class Question1b {
     
     public static int kthSmallestInvestment(int[] returns1, int[] returns2, int k) {
@@ -73,6 +75,408 @@ public class Question1b {
         return result;
     }
 
+    // Binary search on the product value instead of popping k pairs.
+    // Each step counts products <= x in O(m + n), so the total is O((m + n) log(range)),
+    // independent of k. Products are computed as long, so nothing overflows.
+    public static long kthSmallestInvestmentFast(int[] returns1, int[] returns2, long k) {
+        return ProductCounter.kthSmallest(returns1, returns1.length, returns2, returns2.length, k);
+    }
+
+    // Counts and selects products over the first m and n values of two sorted arrays.
+    // Each array is split at its first non-negative value; the negative part read right to left
+    // and the non-negative part read left to right both give ascending magnitudes, so every
+    // sign combination becomes a two-pointer scan over non-negative values. Nothing is copied.
+    static class ProductCounter {
+
+        // kth smallest returns1[i] * returns2[j] with i < m and j < n
+        static long kthSmallest(int[] returns1, int m, int[] returns2, int n, long k) {
+            if (k < 1 || k > (long) m * n) {
+                throw new IllegalArgumentException("k must be between 1 and the total number of pairs");
+            }
+
+            // The extreme products always come from the ends of the two sorted arrays
+            long a0 = returns1[0], a1 = returns1[m - 1];
+            long b0 = returns2[0], b1 = returns2[n - 1];
+            long low = Math.min(Math.min(a0 * b0, a0 * b1), Math.min(a1 * b0, a1 * b1));
+            long high = Math.max(Math.max(a0 * b0, a0 * b1), Math.max(a1 * b0, a1 * b1));
+
+            int split1 = firstNonNegative(returns1, m);
+            int split2 = firstNonNegative(returns2, n);
+
+            // Smallest value x with at least k products <= x
+            while (low < high) {
+                long mid = low + (high - low) / 2;
+                if (countAtMost(returns1, split1, m, returns2, split2, n, mid) >= k) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        // Number of pairs with returns1[i] * returns2[j] <= x
+        static long countAtMost(int[] returns1, int split1, int m, int[] returns2, int split2, int n, long x) {
+            // (+)(+) and (-)(-) give the product |a| * |b|
+            long count = countPairsAtMost(returns1, split1, m, false, returns2, split2, n, false, x)
+                    + countPairsAtMost(returns1, 0, split1, true, returns2, 0, split2, true, x);
+            // (+)(-) and (-)(+) give -|a| * |b|, which is <= x exactly when |a| * |b| >= -x
+            long mixed = (long) (m - split1) * split2 + (long) split1 * (n - split2);
+            count += mixed - countPairsAtMost(returns1, split1, m, false, returns2, 0, split2, true, -x - 1)
+                    - countPairsAtMost(returns1, 0, split1, true, returns2, split2, n, false, -x - 1);
+            return count;
+        }
+
+        // Pairs with |p| * |q| <= limit over p[pFrom..pTo) and q[qFrom..qTo).
+        // A negative segment is walked from its right end so magnitudes ascend.
+        private static long countPairsAtMost(int[] p, int pFrom, int pTo, boolean pNegative,
+                                             int[] q, int qFrom, int qTo, boolean qNegative, long limit) {
+            if (limit < 0) return 0;
+            int pLength = pTo - pFrom, qLength = qTo - qFrom;
+            long count = 0;
+            int j = qLength - 1;
+            for (int i = 0; i < pLength; i++) {
+                long value = pNegative ? -(long) p[pTo - 1 - i] : p[pFrom + i];
+                while (j >= 0 && value * (qNegative ? -(long) q[qTo - 1 - j] : q[qFrom + j]) > limit) j--;
+                if (j < 0) break; // larger magnitudes of p cannot do better
+                count += j + 1;
+            }
+            return count;
+        }
+
+        // Index of the first value >= 0 among values[0..size)
+        static int firstNonNegative(int[] values, int size) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // Sorted, growable int array for one live return series.
+    // Inserts and deletes shift the tail with System.arraycopy instead of re-sorting.
+    static class SortedReturns {
+        private int[] values = new int[16];
+        private int size;
+
+        // Inserts value keeping the array sorted
+        public void insert(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int position = lowerBound(value);
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+        }
+
+        // Removes one occurrence of value, returns false if it is not present
+        public boolean remove(int value) {
+            int position = lowerBound(value);
+            if (position == size || values[position] != value) return false;
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        public int get(int index) {
+            if (index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+            return values[index];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Copy of the current values, for callers that need a plain sorted array
+        public int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        private int lowerBound(int value) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // Two live return series that change tick by tick; returns may be negative.
+    // insert and remove keep each series sorted by shifting its tail, O(n) per call.
+    // The last answer is kept with the number of products below it and at most it. An insert or
+    // remove of value a adjusts both counts with one binary search over the other series, so a
+    // query whose rank still falls between them is answered in O(1). When the rank has moved by d
+    // pairs, the products next to the cached answer are walked in order with a heap over the rows
+    // of returns1, O(m log n + d log m); only a rank further away than m + n pairs falls back to
+    // the full binary search over product values, O((m + n) log(range)).
+    static class LiveReturns {
+        private final SortedReturns returns1 = new SortedReturns();
+        private final SortedReturns returns2 = new SortedReturns();
+
+        private boolean cached; // false until the first query, and after a full clear
+        private long answer, below, atMost; // last answer and the products < and <= it
+
+        // Reused by the walk: per row of returns1, its value, position in returns2, step and product
+        private long[] rowValue = new long[0], rowProduct = new long[0];
+        private int[] rowPosition = new int[0], rowStep = new int[0], heap = new int[0];
+
+        // series is 1 or 2
+        public void insert(int series, int value) {
+            series(series).insert(value);
+            adjustCounts(series, value, 1);
+        }
+
+        // Removes one occurrence of value from series 1 or 2, returns false if it is not present
+        public boolean remove(int series, int value) {
+            if (!series(series).remove(value)) return false;
+            adjustCounts(series, value, -1);
+            return true;
+        }
+
+        public int get(int series, int index) {
+            return series(series).get(index);
+        }
+
+        public int size(int series) {
+            return series(series).size();
+        }
+
+        public long pairCount() {
+            return (long) returns1.size * returns2.size;
+        }
+
+        public long kthSmallestInvestment(long k) {
+            if (k < 1 || k > pairCount()) {
+                throw new IllegalArgumentException("k must be between 1 and the total number of pairs");
+            }
+            if (cached && below < k && k <= atMost) return answer;
+            long steps = !cached ? Long.MAX_VALUE : k > atMost ? k - atMost : below - k + 1;
+            if (steps <= returns1.size + returns2.size) {
+                if (k > atMost) {
+                    walk(1, steps); // up through the products above the cached answer
+                } else {
+                    walk(-1, steps); // down through the products below it
+                }
+            } else {
+                answer = ProductCounter.kthSmallest(returns1.values, returns1.size, returns2.values, returns2.size, k);
+                int split1 = ProductCounter.firstNonNegative(returns1.values, returns1.size);
+                int split2 = ProductCounter.firstNonNegative(returns2.values, returns2.size);
+                atMost = ProductCounter.countAtMost(returns1.values, split1, returns1.size,
+                        returns2.values, split2, returns2.size, answer);
+                below = ProductCounter.countAtMost(returns1.values, split1, returns1.size,
+                        returns2.values, split2, returns2.size, answer - 1);
+                cached = true;
+            }
+            return answer;
+        }
+
+        private SortedReturns series(int series) {
+            if (series == 1) return returns1;
+            if (series == 2) return returns2;
+            throw new IllegalArgumentException("series must be 1 or 2, got " + series);
+        }
+
+        // Adds (sign 1) or takes away (sign -1) the pairs of value with the other series
+        private void adjustCounts(int series, int value, int sign) {
+            if (!cached) return;
+            SortedReturns other = series == 1 ? returns2 : returns1;
+            below += sign * countWithAtMost(value, other, answer - 1);
+            atMost += sign * countWithAtMost(value, other, answer);
+            if (pairCount() == 0) cached = false;
+        }
+
+        // Number of b in other with a * b <= x, by binary search: the condition holds on a prefix
+        // of other when a > 0, on a suffix when a < 0, and everywhere or nowhere when a == 0
+        private static long countWithAtMost(long a, SortedReturns other, long x) {
+            if (a == 0) return x >= 0 ? other.size : 0;
+            int low = 0, high = other.size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if ((a * other.values[mid] <= x) == (a > 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return a > 0 ? low : other.size - low;
+        }
+
+        // Moves the cached answer steps products up (direction 1) or down (direction -1).
+        // Going down is going up over the negated products (-a) * b, so one walk serves both:
+        // every row a' = direction * a yields a' * b in ascending order from its first product
+        // above the negated or plain cached answer, and a heap of rows pops products in order.
+        private void walk(int direction, long steps) {
+            int m = returns1.size, n = returns2.size;
+            int[] b = returns2.values;
+            long threshold = direction * answer;
+            if (rowValue.length < m) {
+                rowValue = new long[m];
+                rowProduct = new long[m];
+                rowPosition = new int[m];
+                rowStep = new int[m];
+                heap = new int[m];
+            }
+            int heapSize = 0;
+            for (int i = 0; i < m; i++) {
+                long a = direction * (long) returns1.values[i];
+                int start;
+                if (a == 0) {
+                    start = 0 > threshold ? 0 : n; // the whole row is 0
+                    rowStep[i] = 1;
+                } else {
+                    // First position past the products <= threshold, in this row's ascending order
+                    long count = countWithAtMost(a, returns2, threshold);
+                    rowStep[i] = a > 0 ? 1 : -1;
+                    start = a > 0 ? (int) count : n - 1 - (int) count;
+                }
+                if (start < 0 || start >= n) continue;
+                rowValue[i] = a;
+                rowPosition[i] = start;
+                rowProduct[i] = a * b[start];
+                heap[heapSize++] = i;
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) siftDown(i, heapSize);
+
+            // Pop steps products; the last is the answer, then also pop the ones equal to it
+            long passed = 0, smaller = 0, value = 0; // smaller: popped before the first copy of value
+            while (heapSize > 0 && (passed < steps || rowProduct[heap[0]] == value)) {
+                int row = heap[0];
+                if (passed == 0 || rowProduct[row] != value) {
+                    value = rowProduct[row];
+                    smaller = passed;
+                }
+                passed++;
+                int next = rowPosition[row] + rowStep[row];
+                if (next >= 0 && next < n) {
+                    rowPosition[row] = next;
+                    rowProduct[row] = rowValue[row] * b[next];
+                } else {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(0, heapSize);
+            }
+            if (direction > 0) {
+                below = atMost + smaller;
+                atMost += passed;
+            } else {
+                atMost = below - smaller;
+                below -= passed;
+            }
+            answer = direction * value;
+        }
+
+        private void siftDown(int index, int size) {
+            int row = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) break;
+                if (child + 1 < size && rowProduct[heap[child + 1]] < rowProduct[heap[child]]) child++;
+                if (rowProduct[heap[child]] >= rowProduct[row]) break;
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = row;
+        }
+    }
+
+    // Replaces one return per tick and asks for a product by rank.
+    // With positive returns, LiveReturns answers the median and is timed against rerunning the
+    // heap on fresh arrays. The heap assumes non-negative returns, so with mixed-sign returns every
+    // answer is instead checked against a brute-force count of the pairs below and at it; half of
+    // those ticks ask for a rank near the previous one and half for any rank, so both the walk from
+    // the cached answer and the full search are exercised.
+    static void benchmark(int size, int ticks) {
+        benchmarkAgainstHeap(size, ticks);
+        benchmarkMixedSigns(size, ticks);
+    }
+
+    private static void benchmarkAgainstHeap(int size, int ticks) {
+        Random random = new Random(42);
+        LiveReturns live = new LiveReturns();
+        for (int i = 0; i < size; i++) {
+            live.insert(1, 1 + random.nextInt(1_000));
+            live.insert(2, 1 + random.nextInt(1_000));
+        }
+
+        long checksum = 0;
+        long liveTime = 0, heapTime = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            int series = 1 + random.nextInt(2);
+            int replaced = live.get(series, random.nextInt(live.size(series)));
+            int value = 1 + random.nextInt(1_000);
+            int k = (int) (live.pairCount() / 2);
+
+            long start = System.nanoTime();
+            live.remove(series, replaced);
+            live.insert(series, value);
+            long fromLive = live.kthSmallestInvestment(k);
+            liveTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int fromHeap = kthSmallestInvestment(live.returns1.toArray(), live.returns2.toArray(), k);
+            heapTime += System.nanoTime() - start;
+
+            if (fromLive != fromHeap) {
+                throw new IllegalStateException("Mismatch at tick " + tick + ": " + fromLive + " vs " + fromHeap);
+            }
+            checksum += fromLive;
+        }
+        System.out.printf("size=%d ticks=%d live=%.3f ms/tick heap=%.3f ms/tick (checksum %d)%n",
+                size, ticks, liveTime / 1e6 / ticks, heapTime / 1e6 / ticks, checksum);
+    }
+
+    private static void benchmarkMixedSigns(int size, int ticks) {
+        Random random = new Random(43);
+        LiveReturns live = new LiveReturns();
+        for (int i = 0; i < size; i++) {
+            live.insert(1, random.nextInt(2_001) - 1_000);
+            live.insert(2, random.nextInt(2_001) - 1_000);
+        }
+
+        long liveTime = 0;
+        long k = 1;
+        for (int tick = 0; tick < ticks; tick++) {
+            int series = 1 + random.nextInt(2);
+            live.remove(series, live.get(series, random.nextInt(live.size(series))));
+            live.insert(series, random.nextInt(2_001) - 1_000);
+            long pairs = live.pairCount();
+            k = tick % 2 == 0
+                    ? 1 + (long) (random.nextDouble() * pairs) // any rank
+                    : Math.max(1, Math.min(pairs, k + random.nextInt(4 * size + 1) - 2 * size)); // a nearby rank
+
+            long start = System.nanoTime();
+            long fromLive = live.kthSmallestInvestment(k);
+            liveTime += System.nanoTime() - start;
+
+            // fromLive is the kth smallest iff fewer than k products are below it and at least k are at most it
+            long below = 0, atMost = 0;
+            for (int i = 0; i < live.size(1); i++) {
+                for (int j = 0; j < live.size(2); j++) {
+                    long product = (long) live.get(1, i) * live.get(2, j);
+                    if (product < fromLive) below++;
+                    if (product <= fromLive) atMost++;
+                }
+            }
+            if (below >= k || atMost < k) {
+                throw new IllegalStateException("Mixed-sign mismatch at tick " + tick + ": " + fromLive + " for k=" + k);
+            }
+        }
+        System.out.printf("size=%d ticks=%d mixed signs: live=%.3f ms/tick, all answers match brute force%n",
+                size, ticks, liveTime / 1e6 / ticks);
+    }
+
     public static void main(String[] args) {
         // Example 1
         int[] returns1 = {2, 5};
@@ -85,9 +489,28 @@ public class Question1b {
         int[] returns4 = {2, 4};
         int k2 = 6;
         System.out.println("Example 2: " + kthSmallestInvestment(returns3, returns4, k2)); // Output: 0
+
+        // Same examples with the value-space binary search
+        System.out.println("Example 1 (fast): " + kthSmallestInvestmentFast(returns1, returns2, k1)); // Output: 8
+        System.out.println("Example 2 (fast): " + kthSmallestInvestmentFast(returns3, returns4, k2)); // Output: 0
+
+        // Example 2 again, built tick by tick
+        LiveReturns live = new LiveReturns();
+        for (int value : returns3) live.insert(1, value);
+        live.insert(2, 4);
+        live.insert(2, 2);
+        System.out.println("Example 2 (live): " + live.kthSmallestInvestment(k2)); // Output: 0
+
+        // Run with "bench" to compare live queries against rerunning the heap every tick
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(2_000, 50);
+        }
     }
 }
 
 // Output
 // 8
+// 0
+// 8
+// 0
 // 0
\ No newline at end of file
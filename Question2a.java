@@ -23,7 +23,12 @@
 // O(n)
 // Space Complexity: 
 // O(n)
+// minRewardsFast: O(n) time, O(1) space. minRewardsParallel: O(n / p) per core plus splitting.
 
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class Question2a {
 
@@ -68,7 +73,169 @@ public class Question2a {
             // Return the total number of rewards
             return totalRewards;
         }
+
+        // Single pass, O(1) extra space, long total.
+        // Tracks the length of the current increasing run (up) and decreasing run (down);
+        // the peak between them only needs raising once the down run grows past it.
+        public static long minRewardsFast(int[] ratings) {
+            if (ratings.length == 0) return 0;
+            return minRewardsRange(ratings, 0, ratings.length - 1);
+        }
+
+        // Minimum rewards for ratings[from..to] (inclusive) treated as a team on its own
+        static long minRewardsRange(int[] ratings, int from, int to) {
+            long total = 1;
+            int up = 0, down = 0, peak = 0;
+            for (int i = from + 1; i <= to; i++) {
+                if (ratings[i] > ratings[i - 1]) {
+                    up++;
+                    peak = up;
+                    down = 0;
+                    total += 1 + up;
+                } else if (ratings[i] == ratings[i - 1]) {
+                    up = down = peak = 0; // equal neighbours do not constrain each other
+                    total += 1;
+                } else {
+                    up = 0;
+                    down++;
+                    // Every employee in the down run gets one more; the peak only if it is now too low
+                    total += 1 + down - (peak >= down ? 1 : 0);
+                }
+            }
+            return total;
+        }
+
+        // Fork/join version for very large teams.
+        // A local minimum always gets exactly 1 reward and blocks both runs around it,
+        // so the two sides can be solved independently and joined by counting it once.
+        public static long minRewardsParallel(int[] ratings) {
+            if (ratings.length == 0) return 0;
+            return ForkJoinPool.commonPool().invoke(new RewardTask(ratings, 0, ratings.length - 1));
+        }
+
+        static class RewardTask extends RecursiveTask<Long> {
+            private static final long serialVersionUID = 1L;
+            private static final int THRESHOLD = 1 << 16; // below this, one pass beats splitting
+            private final int[] ratings;
+            private final int from, to; // inclusive
+
+            RewardTask(int[] ratings, int from, int to) {
+                this.ratings = ratings;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected Long compute() {
+                if (to - from < THRESHOLD) {
+                    return minRewardsRange(ratings, from, to);
+                }
+                int valley = findValley();
+                if (valley < 0) {
+                    return minRewardsRange(ratings, from, to); // one long slope, nothing to split on
+                }
+                RewardTask left = new RewardTask(ratings, from, valley);
+                RewardTask right = new RewardTask(ratings, valley, to);
+                left.fork();
+                long rightTotal = right.compute();
+                return left.join() + rightTotal - 1; // the valley was counted on both sides
+            }
+
+            // Local minimum closest to the middle, searching right first, or -1 if there is none
+            private int findValley() {
+                int mid = from + (to - from) / 2;
+                for (int i = mid; i < to; i++) {
+                    if (isValley(i)) return i;
+                }
+                for (int i = mid - 1; i > from; i--) {
+                    if (isValley(i)) return i;
+                }
+                return -1;
+            }
+
+            private boolean isValley(int i) {
+                return ratings[i] <= ratings[i - 1] && ratings[i] <= ratings[i + 1];
+            }
+        }
     
+        // Rewards for a ratings array that changes one employee at a time.
+        // reward[i] = max(left[i], right[i]), where left[i] is the length of the increasing run
+        // ending at i and right[i] the length of the decreasing run starting at i. A rating change
+        // at i can only alter left to its right and right to its left, and each propagation stops
+        // at the first value that stays the same, so an update costs the length of the changed run.
+        static class DynamicRewards {
+            private final int[] ratings;
+            private final int[] left, right;
+            private long total;
+
+            public DynamicRewards(int[] ratings) {
+                int n = ratings.length;
+                this.ratings = Arrays.copyOf(ratings, n);
+                left = new int[n];
+                right = new int[n];
+                for (int i = 0; i < n; i++) {
+                    left[i] = i > 0 && ratings[i] > ratings[i - 1] ? left[i - 1] + 1 : 1;
+                }
+                for (int i = n - 1; i >= 0; i--) {
+                    right[i] = i < n - 1 && ratings[i] > ratings[i + 1] ? right[i + 1] + 1 : 1;
+                }
+                for (int i = 0; i < n; i++) total += reward(i);
+            }
+
+            public void updateRating(int i, int value) {
+                if (ratings[i] == value) return;
+                ratings[i] = value;
+
+                // left[] can change from i rightwards; i + 1 must be checked because its comparison changed
+                for (int j = i; j < ratings.length; j++) {
+                    int updated = j > 0 && ratings[j] > ratings[j - 1] ? left[j - 1] + 1 : 1;
+                    if (updated == left[j] && j > i) break;
+                    total -= reward(j);
+                    left[j] = updated;
+                    total += reward(j);
+                }
+                // right[] can change from i leftwards
+                for (int j = i; j >= 0; j--) {
+                    int updated = j < ratings.length - 1 && ratings[j] > ratings[j + 1] ? right[j + 1] + 1 : 1;
+                    if (updated == right[j] && j < i) break;
+                    total -= reward(j);
+                    right[j] = updated;
+                    total += reward(j);
+                }
+            }
+
+            public int reward(int i) {
+                return Math.max(left[i], right[i]);
+            }
+
+            public long totalRewards() {
+                return total;
+            }
+        }
+
+        // Applies random single-rating updates and reports updates per second
+        static void benchmark(int n, int updates) {
+            Random random = new Random(11);
+            int[] ratings = new int[n];
+            for (int i = 0; i < n; i++) ratings[i] = random.nextInt(1_000);
+            DynamicRewards dynamic = new DynamicRewards(ratings);
+
+            long start = System.nanoTime();
+            for (int u = 0; u < updates; u++) {
+                int i = random.nextInt(n);
+                int value = random.nextInt(1_000);
+                dynamic.updateRating(i, value);
+                ratings[i] = value;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (dynamic.totalRewards() != minRewardsFast(ratings)) {
+                throw new IllegalStateException("Incremental total diverged from a full recomputation");
+            }
+            System.out.printf("n=%d updates=%d: %.1f million updates/s (%.1f ns/update), total=%d%n",
+                    n, updates, updates / (elapsed / 1e3), (double) elapsed / updates, dynamic.totalRewards());
+        }
+
         public static void main(String[] args) {
             // Example 1
             int[] ratings1 = {1, 0, 2}; // Input ratings for Example 1
@@ -77,9 +244,40 @@ public class Question2a {
             // Example 2
             int[] ratings2 = {1, 2, 2}; // Input ratings for Example 2
             System.out.println("Example 2: " + minRewards(ratings2)); // Output: 4
+
+            // Single-pass and parallel versions must agree with the three-pass version
+            Random random = new Random(7);
+            boolean allMatch = true;
+            for (int trial = 0; trial < 1000; trial++) {
+                int[] ratings = new int[random.nextInt(50) + 1];
+                for (int i = 0; i < ratings.length; i++) ratings[i] = random.nextInt(5);
+                long expected = minRewards(ratings);
+                if (minRewardsFast(ratings) != expected || minRewardsParallel(ratings) != expected) {
+                    System.out.println("Mismatch for " + Arrays.toString(ratings));
+                    allMatch = false;
+                }
+            }
+            System.out.println("Randomized check: " + allMatch); // Output: true
+
+            // Example 1, then the second employee's rating changes from 0 to 3
+            DynamicRewards dynamic = new DynamicRewards(ratings1);
+            dynamic.updateRating(1, 3);
+            System.out.println("After update: " + dynamic.totalRewards()); // Output: 4
+
+            // Run with "bench" to measure update throughput and check the solvers on 4M ratings,
+            // which is large enough for the parallel version to split
+            if (args.length > 0 && args[0].equals("bench")) {
+                int[] large = new int[1 << 22];
+                for (int i = 0; i < large.length; i++) large[i] = random.nextInt(1000);
+                System.out.println("Large check: " + (minRewardsFast(large) == minRewardsParallel(large)
+                        && minRewardsFast(large) == minRewards(large)));
+                benchmark(1_000_000, 5_000_000);
+            }
         }
     }
     
 // Outputs
 // Example 1: 5
 // Example 2: 4
+// Randomized check: true
+// After update: 4
@@ -17,9 +17,12 @@
 // Explanation: Consider index 0 and index 3. The value of | x_coords [i]- x_coords [j]| + | y_coords [i]-
 // y_coords [j]| is 1, which is the smallest value we can achieve.
 // Time Complexity: O(n^2) 
+// toFindClosestPairFast: O(n log n) time, O(n) space
 
 // Space Complexity: O(1) 
  
+import java.util.Arrays;
+
 
 public class Question2b {
    
@@ -57,6 +60,325 @@ public class Question2b {
             return result;
         }
     
+        // O(n log n) version with the same answer, including the lexicographic tie-break.
+        // Rotating every point by 45 degrees (u = x + y, v = x - y) turns the Manhattan distance
+        // into max(|du|, |dv|), so a divide-and-conquer over u with a strip sorted by v applies.
+        public static int[] toFindClosestPairFast(int[] x_coords, int[] y_coords) {
+            return new ClosestPairSolver(x_coords, y_coords).solve();
+        }
+
+        static class ClosestPairSolver {
+            private final int n;
+            private final long[] u, v; // rotated coordinates, long so x + y cannot overflow
+            private final int[] order; // point indices, sorted by u first and by v inside the recursion
+            private final int[] buffer;
+            private long bestDistance = Long.MAX_VALUE;
+            private int bestI, bestJ;
+
+            ClosestPairSolver(int[] x_coords, int[] y_coords) {
+                n = x_coords.length;
+                u = new long[n];
+                v = new long[n];
+                order = new int[n];
+                buffer = new int[n];
+                for (int i = 0; i < n; i++) {
+                    u[i] = (long) x_coords[i] + y_coords[i];
+                    v[i] = (long) x_coords[i] - y_coords[i];
+                    order[i] = i;
+                }
+            }
+
+            int[] solve() {
+                if (n < 2) return new int[2]; // same result as the double loop
+
+                sortByUThenV(0, n);
+                // Duplicate points are at distance 0. Within a group of equal points sorted by
+                // index, the first two indices form the smallest pair, so compare only those.
+                for (int s = 1; s < n; s++) {
+                    int a = order[s - 1], b = order[s];
+                    if (u[a] == u[b] && v[a] == v[b] && (s < 2 || !samePoint(order[s - 2], a))) {
+                        consider(a, b);
+                    }
+                }
+                if (bestDistance == 0) return new int[]{bestI, bestJ};
+
+                // All points are distinct, so every strip window holds a constant number of points
+                closest(0, n);
+                return new int[]{bestI, bestJ};
+            }
+
+            // Best pair inside order[from..to); leaves that range sorted by v
+            private void closest(int from, int to) {
+                if (to - from <= 3) {
+                    for (int a = from; a < to; a++) {
+                        for (int b = a + 1; b < to; b++) consider(order[a], order[b]);
+                    }
+                    insertionSortByV(from, to);
+                    return;
+                }
+                int mid = (from + to) >>> 1;
+                long midU = u[order[mid]];
+                closest(from, mid);
+                closest(mid, to);
+                mergeByV(from, mid, to);
+
+                // Cross pairs can only lie within bestDistance of the split line. The comparisons are
+                // inclusive so pairs that tie with the best distance still reach the tie-break.
+                int stripSize = 0;
+                for (int s = from; s < to; s++) {
+                    if (Math.abs(u[order[s]] - midU) <= bestDistance) buffer[stripSize++] = order[s];
+                }
+                for (int s = 0; s < stripSize; s++) {
+                    for (int t = s + 1; t < stripSize && v[buffer[t]] - v[buffer[s]] <= bestDistance; t++) {
+                        consider(buffer[s], buffer[t]);
+                    }
+                }
+            }
+
+            // Keeps the pair with the smallest (distance, i, j), where i < j
+            private void consider(int a, int b) {
+                long distance = Math.max(Math.abs(u[a] - u[b]), Math.abs(v[a] - v[b]));
+                int i = Math.min(a, b), j = Math.max(a, b);
+                if (distance < bestDistance
+                        || (distance == bestDistance && (i < bestI || (i == bestI && j < bestJ)))) {
+                    bestDistance = distance;
+                    bestI = i;
+                    bestJ = j;
+                }
+            }
+
+            private boolean samePoint(int a, int b) {
+                return u[a] == u[b] && v[a] == v[b];
+            }
+
+            // Merge sort of order[from..to) by (u, v, index)
+            private void sortByUThenV(int from, int to) {
+                if (to - from < 2) return;
+                int mid = (from + to) >>> 1;
+                sortByUThenV(from, mid);
+                sortByUThenV(mid, to);
+                int a = from, b = mid, k = from;
+                while (a < mid && b < to) {
+                    int p = order[a], q = order[b];
+                    boolean takeLeft = u[p] != u[q] ? u[p] < u[q] : v[p] != v[q] ? v[p] < v[q] : p < q;
+                    buffer[k++] = takeLeft ? order[a++] : order[b++];
+                }
+                while (a < mid) buffer[k++] = order[a++];
+                while (b < to) buffer[k++] = order[b++];
+                System.arraycopy(buffer, from, order, from, to - from);
+            }
+
+            private void mergeByV(int from, int mid, int to) {
+                int a = from, b = mid, k = from;
+                while (a < mid && b < to) {
+                    buffer[k++] = v[order[a]] <= v[order[b]] ? order[a++] : order[b++];
+                }
+                while (a < mid) buffer[k++] = order[a++];
+                while (b < to) buffer[k++] = order[b++];
+                System.arraycopy(buffer, from, order, from, to - from);
+            }
+
+            private void insertionSortByV(int from, int to) {
+                for (int s = from + 1; s < to; s++) {
+                    int point = order[s];
+                    int t = s - 1;
+                    while (t >= from && v[order[t]] > v[point]) {
+                        order[t + 1] = order[t];
+                        t--;
+                    }
+                    order[t + 1] = point;
+                }
+            }
+        }
+
+        // Reusable Manhattan-distance index over the same x_coords / y_coords arrays.
+        // An implicit k-d tree: points are reordered so every range [from, to) has its splitting
+        // point at the middle, alternating x and y by depth. No nodes or Point objects exist; the
+        // tree is three int arrays. A subtree is skipped when the distance to its splitting line
+        // alone is already worse than the current answer.
+        static class ManhattanIndex {
+            private final int[] treeX, treeY, treeIndex; // coordinates and original index in tree order
+
+            public ManhattanIndex(int[] x_coords, int[] y_coords) {
+                int n = x_coords.length;
+                treeX = Arrays.copyOf(x_coords, n);
+                treeY = Arrays.copyOf(y_coords, n);
+                treeIndex = new int[n];
+                for (int i = 0; i < n; i++) treeIndex[i] = i;
+                build(0, n, 0);
+            }
+
+            // Index of the nearest point; ties go to the smallest index
+            public int nearest(int x, int y) {
+                if (treeIndex.length == 0) throw new IllegalStateException("The index has no points");
+                return kNearest(x, y, 1)[0];
+            }
+
+            // The k nearest points ordered by distance, then by index
+            public int[] kNearest(int x, int y, int k) {
+                if (k < 0) throw new IllegalArgumentException("k must not be negative, got " + k);
+                if (k == 0) return new int[0];
+                KNearestSearch search = new KNearestSearch(x, y, Math.min(k, treeIndex.length));
+                if (search.capacity > 0) search.visit(0, treeIndex.length, 0);
+                return search.sortedResult();
+            }
+
+            // Every point within Manhattan distance radius (inclusive), in ascending index order
+            public int[] withinRadius(int x, int y, long radius) {
+                int[] found = new int[16];
+                int count = 0;
+                // Explicit stack of (from, to, depth) ranges still to visit
+                int[] stack = new int[3 * 64];
+                int top = 0;
+                stack[top++] = 0;
+                stack[top++] = treeIndex.length;
+                stack[top++] = 0;
+                while (top > 0) {
+                    int depth = stack[--top], to = stack[--top], from = stack[--top];
+                    if (from >= to) continue;
+                    int mid = (from + to) >>> 1;
+                    if (distance(mid, x, y) <= radius) {
+                        if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                        found[count++] = treeIndex[mid];
+                    }
+                    long diff = (depth & 1) == 0 ? (long) x - treeX[mid] : (long) y - treeY[mid];
+                    if (top + 6 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                    if (diff <= radius) { // the lower side is still in reach
+                        stack[top++] = from;
+                        stack[top++] = mid;
+                        stack[top++] = depth + 1;
+                    }
+                    if (-diff <= radius) { // the upper side is still in reach
+                        stack[top++] = mid + 1;
+                        stack[top++] = to;
+                        stack[top++] = depth + 1;
+                    }
+                }
+                int[] result = Arrays.copyOf(found, count);
+                Arrays.sort(result);
+                return result;
+            }
+
+            private long distance(int slot, int x, int y) {
+                return Math.abs((long) treeX[slot] - x) + Math.abs((long) treeY[slot] - y);
+            }
+
+            // Places the median of [from, to) by the depth's axis at the middle, then recurses
+            private void build(int from, int to, int depth) {
+                if (to - from < 2) return;
+                int mid = (from + to) >>> 1;
+                select(from, to - 1, mid, (depth & 1) == 0 ? treeX : treeY);
+                build(from, mid, depth + 1);
+                build(mid + 1, to, depth + 1);
+            }
+
+            // Quickselect on key over slots [low, high] so slot k holds its sorted value
+            private void select(int low, int high, int k, int[] key) {
+                while (low < high) {
+                    int pivot = key[(low + high) >>> 1];
+                    int i = low, j = high;
+                    while (i <= j) {
+                        while (key[i] < pivot) i++;
+                        while (key[j] > pivot) j--;
+                        if (i <= j) swap(i++, j--);
+                    }
+                    if (k <= j) {
+                        high = j;
+                    } else if (k >= i) {
+                        low = i;
+                    } else {
+                        return;
+                    }
+                }
+            }
+
+            private void swap(int a, int b) {
+                int t = treeX[a]; treeX[a] = treeX[b]; treeX[b] = t;
+                t = treeY[a]; treeY[a] = treeY[b]; treeY[b] = t;
+                t = treeIndex[a]; treeIndex[a] = treeIndex[b]; treeIndex[b] = t;
+            }
+
+            // One k-nearest query: a bounded max-heap on (distance, index) in two primitive arrays
+            private class KNearestSearch {
+                private final int x, y, capacity;
+                private final long[] heapDistance;
+                private final int[] heapIndex;
+                private int size;
+
+                KNearestSearch(int x, int y, int capacity) {
+                    this.x = x;
+                    this.y = y;
+                    this.capacity = capacity;
+                    heapDistance = new long[capacity];
+                    heapIndex = new int[capacity];
+                }
+
+                void visit(int from, int to, int depth) {
+                    if (from >= to) return;
+                    int mid = (from + to) >>> 1;
+                    offer(distance(mid, x, y), treeIndex[mid]);
+                    long diff = (depth & 1) == 0 ? (long) x - treeX[mid] : (long) y - treeY[mid];
+                    // Search the side containing the query first, it usually tightens the bound
+                    if (diff < 0) {
+                        visit(from, mid, depth + 1);
+                        if (size < capacity || -diff <= heapDistance[0]) visit(mid + 1, to, depth + 1);
+                    } else {
+                        visit(mid + 1, to, depth + 1);
+                        if (size < capacity || diff <= heapDistance[0]) visit(from, mid, depth + 1);
+                    }
+                }
+
+                private void offer(long distance, int index) {
+                    if (size < capacity) {
+                        int slot = size++;
+                        while (slot > 0 && before(heapDistance[(slot - 1) / 2], heapIndex[(slot - 1) / 2], distance, index)) {
+                            heapDistance[slot] = heapDistance[(slot - 1) / 2];
+                            heapIndex[slot] = heapIndex[(slot - 1) / 2];
+                            slot = (slot - 1) / 2;
+                        }
+                        heapDistance[slot] = distance;
+                        heapIndex[slot] = index;
+                    } else if (before(distance, index, heapDistance[0], heapIndex[0])) {
+                        siftDown(distance, index);
+                    }
+                }
+
+                // Replaces the worst entry at the root and restores the heap
+                private void siftDown(long distance, int index) {
+                    int slot = 0;
+                    while (true) {
+                        int child = 2 * slot + 1;
+                        if (child >= size) break;
+                        if (child + 1 < size && before(heapDistance[child], heapIndex[child],
+                                heapDistance[child + 1], heapIndex[child + 1])) {
+                            child++;
+                        }
+                        if (!before(distance, index, heapDistance[child], heapIndex[child])) break;
+                        heapDistance[slot] = heapDistance[child];
+                        heapIndex[slot] = heapIndex[child];
+                        slot = child;
+                    }
+                    heapDistance[slot] = distance;
+                    heapIndex[slot] = index;
+                }
+
+                // Empties the heap worst-first, filling the result from the back
+                int[] sortedResult() {
+                    int[] result = new int[size];
+                    while (size > 0) {
+                        result[size - 1] = heapIndex[0];
+                        size--;
+                        if (size > 0) siftDown(heapDistance[size], heapIndex[size]);
+                    }
+                    return result;
+                }
+
+                private boolean before(long distanceA, int indexA, long distanceB, int indexB) {
+                    return distanceA < distanceB || (distanceA == distanceB && indexA < indexB);
+                }
+            }
+        }
+
         public static void main(String[] args) {
             // Input arrays
             int[] x_coords = {1, 2, 3, 2, 4};
@@ -67,8 +389,22 @@ public class Question2b {
     
             // Print the result
             System.out.println("Closest Pair: [" + closestPair[0] + ", " + closestPair[1] + "]");
+
+            // Same input through the O(n log n) solver
+            int[] fastPair = toFindClosestPairFast(x_coords, y_coords);
+            System.out.println("Closest Pair (fast): [" + fastPair[0] + ", " + fastPair[1] + "]");
+
+            // Repeated queries against one index over the same points
+            ManhattanIndex index = new ManhattanIndex(x_coords, y_coords);
+            System.out.println("Nearest to (2, 2): " + index.nearest(2, 2));
+            System.out.println("3 nearest to (3, 2): " + Arrays.toString(index.kNearest(3, 2, 3)));
+            System.out.println("Within 1 of (2, 2): " + Arrays.toString(index.withinRadius(2, 2, 1)));
         }
     }
 
 // Output
 // Closest Pair: [0, 3]
+// Closest Pair (fast): [0, 3]
+// Nearest to (2, 2): 3
+// 3 nearest to (3, 2): [2, 3, 0]
+// Within 1 of (2, 2): [0, 1, 3]
@@ -21,8 +21,22 @@
 // Time Complexity: 
 // O(ElogE), where E is the number of edges (sorting dominates).
 // Space Complexity: O(V+E), where V is the number of devices and E is the number of edges.
+// minTotalCostFast: O(E) radix sort instead of O(ElogE), edges kept in primitive arrays.
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 class Question3a {
     
@@ -37,11 +51,18 @@ class Question3a {
         }
         
         // Find the root of a node
+        // Iterative so that deep trees cannot overflow the call stack
         public int find(int x) {
-            if (parent[x] != x) {
-                parent[x] = find(parent[x]); // Path compression
+            int root = x;
+            while (parent[root] != root) {
+                root = parent[root];
             }
-            return parent[x];
+            while (parent[x] != root) { // Path compression
+                int next = parent[x];
+                parent[x] = root;
+                x = next;
+            }
+            return root;
         }
         
         // Union operation with rank optimization
@@ -95,6 +116,787 @@ class Question3a {
         return totalCost;
     }
 
+    // Edges stored as three parallel int arrays (structure of arrays) instead of one int[] each
+    static class EdgeStore {
+        int[] from, to, cost;
+        int size;
+
+        public EdgeStore(int capacity) {
+            from = new int[Math.max(capacity, 1)];
+            to = new int[from.length];
+            cost = new int[from.length];
+        }
+
+        public void add(int u, int v, int c) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                cost = Arrays.copyOf(cost, size * 2);
+            }
+            from[size] = u;
+            to[size] = v;
+            cost[size] = c;
+            size++;
+        }
+
+        // LSD radix sort by cost, two passes of 16 bits.
+        // The sign bit is flipped so negative costs order correctly; a pass is skipped
+        // when every edge has the same digit, which is common for small costs.
+        public void sortByCost() {
+            int[] fromBuffer = new int[size], toBuffer = new int[size], costBuffer = new int[size];
+            int[] count = new int[1 << 16];
+            for (int shift = 0; shift < 32; shift += 16) {
+                Arrays.fill(count, 0);
+                for (int e = 0; e < size; e++) count[digit(cost[e], shift)]++;
+                if (count[digit(cost[0], shift)] == size) continue;
+
+                for (int d = 0, sum = 0; d < count.length; d++) { // prefix sums give start positions
+                    int c = count[d];
+                    count[d] = sum;
+                    sum += c;
+                }
+                for (int e = 0; e < size; e++) {
+                    int position = count[digit(cost[e], shift)]++;
+                    fromBuffer[position] = from[e];
+                    toBuffer[position] = to[e];
+                    costBuffer[position] = cost[e];
+                }
+                int[] t = from; from = fromBuffer; fromBuffer = t;
+                t = to; to = toBuffer; toBuffer = t;
+                t = cost; cost = costBuffer; costBuffer = t;
+            }
+        }
+
+        private static int digit(int cost, int shift) {
+            return ((cost ^ Integer.MIN_VALUE) >>> shift) & 0xFFFF;
+        }
+    }
+
+    // Same model as minTotalCost with primitive edge arrays, a radix sort and a long total
+    public static long minTotalCostFast(int n, int[] modules, int[][] connections) {
+        EdgeStore edges = new EdgeStore(connections.length + n);
+        for (int[] conn : connections) {
+            edges.add(conn[0] - 1, conn[1] - 1, conn[2]); // Convert to 0-based index
+        }
+        addModuleEdges(n, modules, edges); // our own store, so it can take the hub edges directly
+        return kruskal(n, edges);
+    }
+
+    // Kruskal over 0-based connections already in an EdgeStore; the caller's store is not changed
+    public static long minTotalCostFast(int n, int[] modules, EdgeStore edges) {
+        return kruskal(n, withModuleEdges(n, modules, edges));
+    }
+
+    // Appends the virtual edge from the dummy hub n to every device
+    static void addModuleEdges(int n, int[] modules, EdgeStore edges) {
+        for (int i = 0; i < n; i++) {
+            edges.add(n, i, modules[i]);
+        }
+    }
+
+    // A copy of edges with the module edges appended
+    static EdgeStore withModuleEdges(int n, int[] modules, EdgeStore edges) {
+        EdgeStore copy = new EdgeStore(edges.size + n);
+        System.arraycopy(edges.from, 0, copy.from, 0, edges.size);
+        System.arraycopy(edges.to, 0, copy.to, 0, edges.size);
+        System.arraycopy(edges.cost, 0, copy.cost, 0, edges.size);
+        copy.size = edges.size;
+        addModuleEdges(n, modules, copy);
+        return copy;
+    }
+
+    // Kruskal over edges that already include the module edges; sorts edges in place
+    private static long kruskal(int n, EdgeStore edges) {
+        if (edges.size == 0) return 0;
+        edges.sortByCost();
+
+        UnionFind uf = new UnionFind(n + 1);
+        long totalCost = 0;
+        int edgesUsed = 0;
+        for (int e = 0; e < edges.size && edgesUsed < n; e++) {
+            if (uf.union(edges.from[e], edges.to[e])) {
+                totalCost += edges.cost[e];
+                edgesUsed++;
+            }
+        }
+        return totalCost;
+    }
+
+    // The MST algorithms available for the same device network
+    enum Algorithm { KRUSKAL, PARALLEL_BORUVKA }
+
+    // Minimum total cost with the chosen algorithm; threads is only used by PARALLEL_BORUVKA
+    public static long minTotalCost(int n, int[] modules, int[][] connections, Algorithm algorithm, int threads) {
+        EdgeStore edges = new EdgeStore(connections.length + n);
+        for (int[] conn : connections) {
+            edges.add(conn[0] - 1, conn[1] - 1, conn[2]); // Convert to 0-based index
+        }
+        addModuleEdges(n, modules, edges); // our own store, so no copy is needed
+        if (algorithm == Algorithm.KRUSKAL) {
+            return kruskal(n, edges);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return boruvka(n, edges, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Union-Find whose find and union are safe to call from many threads at once.
+    // find uses path halving with compareAndSet; union links the smaller root under the
+    // larger one with a single compareAndSet and retries if another thread moved it first.
+    static class ConcurrentUnionFind {
+        private final AtomicIntegerArray parent;
+
+        public ConcurrentUnionFind(int n) {
+            parent = new AtomicIntegerArray(n);
+            for (int i = 0; i < n; i++) parent.set(i, i);
+        }
+
+        public int find(int x) {
+            while (true) {
+                int p = parent.get(x);
+                if (p == x) return x;
+                int grandparent = parent.get(p);
+                if (p != grandparent) parent.compareAndSet(x, p, grandparent); // Path halving
+                x = grandparent;
+            }
+        }
+
+        // Returns true only for the call that actually merged the two sets
+        public boolean union(int x, int y) {
+            while (true) {
+                int rootX = find(x);
+                int rootY = find(y);
+                if (rootX == rootY) return false;
+                if (rootX > rootY) {
+                    int t = rootX; rootX = rootY; rootY = t;
+                }
+                if (parent.compareAndSet(rootX, rootX, rootY)) return true;
+            }
+        }
+    }
+
+    // Parallel Boruvka over 0-based connections; the caller's store is not changed.
+    // Each round, every component picks its cheapest outgoing edge in parallel over the edges,
+    // then all picked edges are merged in parallel. Ties are broken by edge index, so the picked
+    // edges never form a cycle and the total equals Kruskal's.
+    public static long minTotalCostParallel(int n, int[] modules, EdgeStore edges, ForkJoinPool pool) {
+        return boruvka(n, withModuleEdges(n, modules, edges), pool);
+    }
+
+    // Boruvka rounds over edges that already include the module edges
+    private static long boruvka(int n, EdgeStore edges, ForkJoinPool pool) {
+        int nodes = n + 1;
+        ConcurrentUnionFind uf = new ConcurrentUnionFind(nodes);
+        // Cheapest edge per component, packed as (cost << 32 | edge index) so one long compare orders both
+        AtomicLongArray cheapest = new AtomicLongArray(nodes);
+        long totalCost = 0;
+        int components = nodes;
+
+        while (components > 1) {
+            for (int v = 0; v < nodes; v++) cheapest.set(v, NONE);
+
+            pool.invoke(new RangeTask(0, edges.size, (from, to) -> {
+                for (int e = from; e < to; e++) {
+                    int rootU = uf.find(edges.from[e]);
+                    int rootV = uf.find(edges.to[e]);
+                    if (rootU == rootV) continue;
+                    long packed = ((long) edges.cost[e] << 32) | e;
+                    lowerTo(cheapest, rootU, packed);
+                    lowerTo(cheapest, rootV, packed);
+                }
+            }));
+
+            LongAdder roundCost = new LongAdder(), merges = new LongAdder();
+            pool.invoke(new RangeTask(0, nodes, (from, to) -> {
+                long cost = 0, count = 0;
+                for (int v = from; v < to; v++) {
+                    long packed = cheapest.get(v);
+                    if (packed == NONE) continue;
+                    int e = (int) packed;
+                    if (uf.union(edges.from[e], edges.to[e])) {
+                        cost += edges.cost[e];
+                        count++;
+                    }
+                }
+                roundCost.add(cost);
+                merges.add(count);
+            }));
+            if (merges.sum() == 0) break; // the rest of the graph is disconnected from the hub
+            totalCost += roundCost.sum();
+            components -= (int) merges.sum();
+        }
+        return totalCost;
+    }
+
+    private static final long NONE = Long.MAX_VALUE;
+
+    private static void lowerTo(AtomicLongArray cheapest, int slot, long packed) {
+        long current;
+        while (packed < (current = cheapest.get(slot))) {
+            if (cheapest.compareAndSet(slot, current, packed)) return;
+        }
+    }
+
+    // Work on the index range [from, to)
+    interface RangeBody {
+        void run(int from, int to);
+    }
+
+    // Splits [from, to) in halves until ranges are small enough to run directly
+    static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int CHUNK = 1 << 14;
+        private final int from, to;
+        private final RangeBody body;
+
+        RangeTask(int from, int to, RangeBody body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, body), new RangeTask(mid, to, body));
+        }
+    }
+
+    // Times Kruskal once and parallel Boruvka at 1, 2, 4, 8 and 16 threads on a random network
+    static void benchmark(int n, int connectionCount) {
+        Random random = new Random(3);
+        int[] modules = new int[n];
+        for (int i = 0; i < n; i++) modules[i] = 1_000 + random.nextInt(100_000);
+        int[][] connections = new int[connectionCount][];
+        for (int j = 0; j < connectionCount; j++) {
+            connections[j] = new int[]{1 + random.nextInt(n), 1 + random.nextInt(n), random.nextInt(100_000)};
+        }
+        System.out.println("n=" + n + " connections=" + connectionCount
+                + " cores=" + Runtime.getRuntime().availableProcessors());
+
+        long start = System.nanoTime();
+        long expected = minTotalCost(n, modules, connections, Algorithm.KRUSKAL, 1);
+        System.out.printf("Kruskal: %d ms (cost %d)%n", (System.nanoTime() - start) / 1_000_000, expected);
+
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            start = System.nanoTime();
+            long cost = minTotalCost(n, modules, connections, Algorithm.PARALLEL_BORUVKA, threads);
+            System.out.printf("Boruvka, %2d threads: %d ms (cost %d)%n",
+                    threads, (System.nanoTime() - start) / 1_000_000, cost);
+            if (cost != expected) throw new IllegalStateException("Boruvka total differs from Kruskal");
+        }
+    }
+
+    // Link-cut tree over array-backed splay trees, answering path-maximum queries.
+    // Nodes are numbered from 1 (0 means "none"); every node carries a value and each splay
+    // subtree tracks the node holding its largest value.
+    static class LinkCutTree {
+        private int[] left, right, parent, maxNode;
+        private long[] value;
+        private boolean[] reversed;
+
+        public LinkCutTree(int capacity) {
+            left = new int[capacity + 1];
+            right = new int[capacity + 1];
+            parent = new int[capacity + 1];
+            maxNode = new int[capacity + 1];
+            value = new long[capacity + 1];
+            reversed = new boolean[capacity + 1];
+        }
+
+        public void ensureCapacity(int capacity) {
+            if (capacity + 1 <= left.length) return;
+            int size = Math.max(capacity + 1, left.length * 2);
+            left = Arrays.copyOf(left, size);
+            right = Arrays.copyOf(right, size);
+            parent = Arrays.copyOf(parent, size);
+            maxNode = Arrays.copyOf(maxNode, size);
+            value = Arrays.copyOf(value, size);
+            reversed = Arrays.copyOf(reversed, size);
+        }
+
+        // Sets the value of a node that may already be part of a tree
+        public void setValue(int x, long newValue) {
+            access(x);
+            value[x] = newValue;
+            pull(x);
+        }
+
+        public void link(int x, int y) {
+            makeRoot(x);
+            parent[x] = y;
+        }
+
+        // Removes the tree edge between x and y, which must be adjacent
+        public void cut(int x, int y) {
+            makeRoot(x);
+            access(y);
+            left[y] = 0;
+            parent[x] = 0;
+            pull(y);
+        }
+
+        public boolean connected(int x, int y) {
+            return findRoot(x) == findRoot(y);
+        }
+
+        // Node with the largest value on the path between x and y
+        public int pathMax(int x, int y) {
+            makeRoot(x);
+            access(y);
+            return maxNode[y];
+        }
+
+        private int findRoot(int x) {
+            access(x);
+            while (true) {
+                push(x);
+                if (left[x] == 0) break;
+                x = left[x];
+            }
+            splay(x);
+            return x;
+        }
+
+        private void makeRoot(int x) {
+            access(x);
+            reversed[x] = !reversed[x];
+        }
+
+        private void access(int x) {
+            int last = 0;
+            for (int y = x; y != 0; y = parent[y]) {
+                splay(y);
+                right[y] = last;
+                pull(y);
+                last = y;
+            }
+            splay(x);
+        }
+
+        private boolean isSplayRoot(int x) {
+            int p = parent[x];
+            return p == 0 || (left[p] != x && right[p] != x);
+        }
+
+        private void pull(int x) {
+            int best = x;
+            if (left[x] != 0 && value[maxNode[left[x]]] > value[best]) best = maxNode[left[x]];
+            if (right[x] != 0 && value[maxNode[right[x]]] > value[best]) best = maxNode[right[x]];
+            maxNode[x] = best;
+        }
+
+        private void push(int x) {
+            if (!reversed[x]) return;
+            int t = left[x]; left[x] = right[x]; right[x] = t;
+            if (left[x] != 0) reversed[left[x]] = !reversed[left[x]];
+            if (right[x] != 0) reversed[right[x]] = !reversed[right[x]];
+            reversed[x] = false;
+        }
+
+        private void rotate(int x) {
+            int p = parent[x], g = parent[p];
+            if (!isSplayRoot(p)) {
+                if (left[g] == p) left[g] = x; else right[g] = x;
+            }
+            parent[x] = g;
+            if (left[p] == x) {
+                left[p] = right[x];
+                if (right[x] != 0) parent[right[x]] = p;
+                right[x] = p;
+            } else {
+                right[p] = left[x];
+                if (left[x] != 0) parent[left[x]] = p;
+                left[x] = p;
+            }
+            parent[p] = x;
+            pull(p);
+            pull(x);
+        }
+
+        private int[] pathStack = new int[64];
+
+        private void splay(int x) {
+            // Push pending reversals from the splay root down to x before rotating
+            int depth = 0;
+            for (int y = x; ; y = parent[y]) {
+                if (depth == pathStack.length) pathStack = Arrays.copyOf(pathStack, depth * 2);
+                pathStack[depth++] = y;
+                if (isSplayRoot(y)) break;
+            }
+            while (depth > 0) push(pathStack[--depth]);
+
+            while (!isSplayRoot(x)) {
+                int p = parent[x];
+                if (!isSplayRoot(p)) {
+                    int g = parent[p];
+                    rotate((left[g] == p) == (left[p] == x) ? p : x);
+                }
+                rotate(x);
+            }
+        }
+    }
+
+    // Minimum total cost kept up to date while connections and module costs change.
+    // Same dummy-hub model as minTotalCost: module i is edge (i, hub). The spanning tree lives in
+    // a link-cut tree where every edge is its own node carrying the cost, so an insertion or a
+    // cost decrease swaps out the most expensive edge on the cycle it closes in O(log n).
+    // Removing a tree edge or raising its cost needs a replacement edge across the cut; that
+    // case scans the non-tree edges once. Module edges cannot be removed, so the network always
+    // stays connected through the hub.
+    static class DynamicNetwork {
+        private static final long VERTEX = Long.MIN_VALUE; // vertices never win a path maximum
+        private final int n; // number of devices, the hub is vertex n
+        private final LinkCutTree tree;
+        private int[] edgeU, edgeV, edgeCost;
+        private boolean[] inTree, alive;
+        private int edgeCount;
+        private long totalCost;
+
+        public DynamicNetwork(int n, int[] modules) {
+            this.n = n;
+            tree = new LinkCutTree(n + 1 + 2 * n);
+            for (int v = 0; v <= n; v++) tree.setValue(vertexNode(v), VERTEX);
+            edgeU = new int[Math.max(2 * n, 1)];
+            edgeV = new int[edgeU.length];
+            edgeCost = new int[edgeU.length];
+            inTree = new boolean[edgeU.length];
+            alive = new boolean[edgeU.length];
+            for (int i = 0; i < n; i++) {
+                addEdge(n, i, modules[i]); // module edge i has id i
+            }
+        }
+
+        // Adds a connection between two 1-based devices and returns its id
+        public int addConnection(int device1, int device2, int cost) {
+            return addEdge(device1 - 1, device2 - 1, cost);
+        }
+
+        public void removeConnection(int id) {
+            if (id < n) throw new IllegalArgumentException("Module edges cannot be removed, change their cost instead");
+            if (!alive[id]) throw new IllegalArgumentException("Connection " + id + " was already removed");
+            alive[id] = false;
+            if (inTree[id]) {
+                detach(id);
+                reconnect();
+            }
+        }
+
+        public void setConnectionCost(int id, int cost) {
+            if (!alive[id]) throw new IllegalArgumentException("Connection " + id + " was removed");
+            int oldCost = edgeCost[id];
+            edgeCost[id] = cost;
+            tree.setValue(edgeNode(id), cost);
+            if (inTree[id]) {
+                totalCost += (long) cost - oldCost;
+                if (cost > oldCost) { // a cheaper edge may now cross this one's cut
+                    detach(id);
+                    reconnect();
+                }
+            } else if (cost < oldCost) {
+                tryInsert(id);
+            }
+        }
+
+        // Module installation cost of a 1-based device
+        public void setModuleCost(int device, int cost) {
+            setConnectionCost(device - 1, cost);
+        }
+
+        public long totalCost() {
+            return totalCost;
+        }
+
+        private int addEdge(int u, int v, int cost) {
+            if (edgeCount == edgeU.length) {
+                int size = edgeCount * 2;
+                edgeU = Arrays.copyOf(edgeU, size);
+                edgeV = Arrays.copyOf(edgeV, size);
+                edgeCost = Arrays.copyOf(edgeCost, size);
+                inTree = Arrays.copyOf(inTree, size);
+                alive = Arrays.copyOf(alive, size);
+            }
+            int id = edgeCount++;
+            edgeU[id] = u;
+            edgeV[id] = v;
+            edgeCost[id] = cost;
+            alive[id] = true;
+            tree.ensureCapacity(edgeNode(id));
+            tree.setValue(edgeNode(id), cost);
+            tryInsert(id);
+            return id;
+        }
+
+        // Puts a non-tree edge into the tree if it is cheaper than the worst edge on its cycle
+        private void tryInsert(int id) {
+            int u = edgeU[id], v = edgeV[id];
+            if (u == v) return; // a self-loop never joins the tree
+            if (!tree.connected(vertexNode(u), vertexNode(v))) {
+                attach(id);
+                return;
+            }
+            int worst = tree.pathMax(vertexNode(u), vertexNode(v)) - n - 2;
+            if (edgeCost[worst] > edgeCost[id]) {
+                detach(worst);
+                attach(id);
+            }
+        }
+
+        // Links the cheapest live non-tree edge that joins the two parts of a split tree
+        private void reconnect() {
+            int best = -1;
+            for (int id = 0; id < edgeCount; id++) {
+                if (!alive[id] || inTree[id] || edgeU[id] == edgeV[id]) continue;
+                if (best >= 0 && edgeCost[id] >= edgeCost[best]) continue;
+                if (!tree.connected(vertexNode(edgeU[id]), vertexNode(edgeV[id]))) best = id;
+            }
+            if (best >= 0) attach(best);
+        }
+
+        private void attach(int id) {
+            tree.link(vertexNode(edgeU[id]), edgeNode(id));
+            tree.link(edgeNode(id), vertexNode(edgeV[id]));
+            inTree[id] = true;
+            totalCost += edgeCost[id];
+        }
+
+        private void detach(int id) {
+            tree.cut(vertexNode(edgeU[id]), edgeNode(id));
+            tree.cut(edgeNode(id), vertexNode(edgeV[id]));
+            inTree[id] = false;
+            totalCost -= edgeCost[id];
+        }
+
+        private int vertexNode(int v) {
+            return v + 1;
+        }
+
+        private int edgeNode(int id) {
+            return n + 2 + id;
+        }
+    }
+
+    // Kruskal over a connection file too large for memory.
+    // The file holds binary (device1, device2, cost) int triples, 1-based, big-endian as written by
+    // DataOutputStream or writeConnections. It is cut into runs of at most runEdges edges; each run
+    // is radix sorted in memory and written to a temporary file. Runs are merged by cost at most
+    // MERGE_FAN_IN at a time, in as many passes as needed, so only that many run files are open at
+    // once; the last pass merges the remaining runs and the in-memory module edges straight into the
+    // Union-Find. All reads go through memory-mapped windows, so the heap holds one run buffer, the
+    // modules and the Union-Find.
+    public static long minTotalCostFromFile(int n, int[] modules, Path connectionsFile, int runEdges)
+            throws IOException {
+        if (runEdges < 1) throw new IllegalArgumentException("runEdges must be at least 1, got " + runEdges);
+        Path runDirectory = Files.createTempDirectory("mst-runs");
+        List<Path> created = new ArrayList<>(); // every run file, for cleanup
+        try {
+            List<Path> runs = new ArrayList<>();
+            try (FileChannel input = FileChannel.open(connectionsFile, StandardOpenOption.READ)) {
+                if (input.size() % EDGE_BYTES != 0) {
+                    throw new IOException(connectionsFile + " is not a whole number of edge triples");
+                }
+                long edgeTotal = input.size() / EDGE_BYTES;
+                EdgeReader reader = new EdgeReader(input, 0, edgeTotal);
+                for (long done = 0; done < edgeTotal; ) {
+                    int count = (int) Math.min(runEdges, edgeTotal - done);
+                    EdgeStore run = new EdgeStore(count);
+                    for (int e = 0; e < count; e++) {
+                        reader.next();
+                        run.add(reader.u - 1, reader.v - 1, reader.cost); // Convert to 0-based index
+                    }
+                    run.sortByCost();
+                    Path runFile = runDirectory.resolve("run-" + created.size());
+                    created.add(runFile); // before writing, so a failed write is still cleaned up
+                    runs.add(runFile);
+                    writeEdges(runFile, run);
+                    done += count;
+                }
+            }
+
+            // Earlier passes: merge groups of runs into longer runs until one final merge is enough
+            while (runs.size() > MERGE_FAN_IN) {
+                List<Path> merged = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += MERGE_FAN_IN) {
+                    List<Path> group = runs.subList(from, Math.min(from + MERGE_FAN_IN, runs.size()));
+                    Path runFile = runDirectory.resolve("run-" + created.size());
+                    created.add(runFile);
+                    merged.add(runFile);
+                    try (EdgeWriter output = new EdgeWriter(runFile)) {
+                        mergeRuns(group, null, (u, v, cost) -> {
+                            output.add(u, v, cost);
+                            return true;
+                        });
+                    }
+                    for (Path done : group) Files.deleteIfExists(done); // keep disk use near one copy
+                }
+                runs = merged;
+            }
+
+            // Module edges are few enough (one per device) to stay in memory as their own run
+            EdgeStore moduleEdges = new EdgeStore(n);
+            addModuleEdges(n, modules, moduleEdges);
+            moduleEdges.sortByCost();
+
+            UnionFind uf = new UnionFind(n + 1);
+            long[] totalCost = new long[1];
+            int[] edgesUsed = new int[1];
+            mergeRuns(runs, moduleEdges, (u, v, cost) -> {
+                if (uf.union(u, v)) {
+                    totalCost[0] += cost;
+                    edgesUsed[0]++;
+                }
+                return edgesUsed[0] < n; // stop reading once the tree is complete
+            });
+            return totalCost[0];
+        } finally {
+            for (Path runFile : created) Files.deleteIfExists(runFile);
+            Files.deleteIfExists(runDirectory);
+        }
+    }
+
+    // Kruskal over a connection file with the run size chosen from the device count: each run
+    // buffer takes about as much heap as the Union-Find and modules, so heap use grows with n and
+    // not with the number of edges in the file
+    public static long minTotalCostFromFile(int n, int[] modules, Path connectionsFile) throws IOException {
+        return minTotalCostFromFile(n, modules, connectionsFile, runEdgesFor(n));
+    }
+
+    private static final int MERGE_FAN_IN = 64; // run files open at once during a merge
+    private static final int MIN_RUN_EDGES = 1 << 16;
+
+    // A run and its sort buffers take 24 bytes per edge and the Union-Find and modules about 12 per
+    // device, so two edges per device keep the run buffer within a few times the per-device heap
+    static int runEdgesFor(int n) {
+        return (int) Math.min(Integer.MAX_VALUE / 4, Math.max(MIN_RUN_EDGES, 2L * (n + 1)));
+    }
+
+    // Receives merged edges in cost order; returns false to stop the merge early
+    interface EdgeSink {
+        boolean accept(int u, int v, int cost) throws IOException;
+    }
+
+    // Merges the sorted run files, plus an optional sorted in-memory run, by cost into sink
+    private static void mergeRuns(List<Path> runFiles, EdgeStore memoryRun, EdgeSink sink) throws IOException {
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            PriorityQueue<EdgeReader> merge = new PriorityQueue<>(Comparator.comparingInt(r -> r.cost));
+            if (memoryRun != null) {
+                EdgeReader memoryReader = new EdgeReader(memoryRun);
+                if (memoryReader.next()) merge.add(memoryReader);
+            }
+            for (Path runFile : runFiles) {
+                FileChannel channel = FileChannel.open(runFile, StandardOpenOption.READ);
+                channels.add(channel);
+                EdgeReader runReader = new EdgeReader(channel, 0, channel.size() / EDGE_BYTES);
+                if (runReader.next()) merge.add(runReader);
+            }
+            while (!merge.isEmpty()) {
+                EdgeReader smallest = merge.poll();
+                if (!sink.accept(smallest.u, smallest.v, smallest.cost)) return;
+                if (smallest.next()) merge.add(smallest);
+            }
+        } finally {
+            for (FileChannel channel : channels) channel.close();
+        }
+    }
+
+    private static final int EDGE_BYTES = 3 * Integer.BYTES;
+
+    // Writes connections (1-based) in the binary format read by minTotalCostFromFile
+    public static void writeConnections(Path file, int[][] connections) throws IOException {
+        EdgeStore edges = new EdgeStore(connections.length);
+        for (int[] conn : connections) edges.add(conn[0], conn[1], conn[2]);
+        writeEdges(file, edges);
+    }
+
+    private static void writeEdges(Path file, EdgeStore edges) throws IOException {
+        try (EdgeWriter output = new EdgeWriter(file)) {
+            for (int e = 0; e < edges.size; e++) output.add(edges.from[e], edges.to[e], edges.cost[e]);
+        }
+    }
+
+    // Appends edge triples to a file through one direct buffer
+    static class EdgeWriter implements Closeable {
+        private final FileChannel output;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(EDGE_BYTES * 8192);
+
+        EdgeWriter(Path file) throws IOException {
+            output = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void add(int u, int v, int cost) throws IOException {
+            if (buffer.remaining() < EDGE_BYTES) flush();
+            buffer.putInt(u).putInt(v).putInt(cost);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) output.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    // Cursor over edge triples, either in a file through memory-mapped windows or in an EdgeStore
+    static class EdgeReader {
+        private static final long WINDOW_EDGES = 1 << 18; // 3 MB of the file mapped at a time
+        private final FileChannel channel;
+        private final EdgeStore store;
+        private final long edgeCount;
+        private long position; // index of the next edge to read
+        private MappedByteBuffer window;
+        int u, v, cost; // the current edge after next() returned true
+
+        EdgeReader(FileChannel channel, long firstEdge, long edgeCount) {
+            this.channel = channel;
+            this.store = null;
+            this.position = firstEdge;
+            this.edgeCount = firstEdge + edgeCount;
+        }
+
+        EdgeReader(EdgeStore store) {
+            this.channel = null;
+            this.store = store;
+            this.edgeCount = store.size;
+        }
+
+        boolean next() throws IOException {
+            if (position == edgeCount) return false;
+            if (store != null) {
+                int e = (int) position;
+                u = store.from[e];
+                v = store.to[e];
+                cost = store.cost[e];
+            } else {
+                if (window == null || !window.hasRemaining()) {
+                    long edges = Math.min(WINDOW_EDGES, edgeCount - position);
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position * EDGE_BYTES, edges * EDGE_BYTES);
+                }
+                u = window.getInt();
+                v = window.getInt();
+                cost = window.getInt();
+            }
+            position++;
+            return true;
+        }
+    }
+
     // Driver code to test the function
     public static void main(String[] args) {
         int n = 3;
@@ -102,5 +904,30 @@ class Question3a {
         int[][] connections = {{1, 2, 1}, {2, 3, 1}};
         
         System.out.println(minTotalCost(n, modules, connections)); // Expected Output: 3
+        System.out.println(minTotalCostFast(n, modules, connections)); // Expected Output: 3
+        System.out.println(minTotalCost(n, modules, connections, Algorithm.PARALLEL_BORUVKA, 4)); // Expected Output: 3
+
+        // The same network kept up to date as prices change
+        DynamicNetwork network = new DynamicNetwork(n, modules);
+        int first = network.addConnection(1, 2, 1);
+        network.addConnection(2, 3, 1);
+        System.out.println(network.totalCost()); // Expected Output: 3
+        network.setConnectionCost(first, 5); // device 2 now installs its own module instead
+        System.out.println(network.totalCost()); // Expected Output: 4
+
+        // The same connections read back from a binary file, one edge per sorted run
+        try {
+            Path file = Files.createTempFile("connections", ".bin");
+            writeConnections(file, connections);
+            System.out.println(minTotalCostFromFile(n, modules, file, 1)); // Expected Output: 3
+            Files.delete(file);
+        } catch (IOException e) {
+            System.err.println("File-based MST failed: " + e.getMessage());
+        }
+
+        // Run with "bench" for thread scaling of the parallel mode
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(1_000_000, 5_000_000);
+        }
     }
 }
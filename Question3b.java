@@ -47,7 +47,26 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import javax.swing.*;
 
 // Class to represent a Tetris block
@@ -55,10 +74,19 @@ class Block {
     int[][] shape; // 2D array representing the block's shape
     Color color; // Color of the block
     int x, y; // Position of the block on the game board
+    int type; // Index into PieceTable.SHAPES
+    int rotation; // Number of clockwise turns, 0 to 3
 
-    // Constructor to initialize a block
-    public Block(int[][] shape, Color color) {
-        this.shape = shape;
+    // Constructor to initialize a block of one of the predefined shapes
+    public Block(int type, Color color) {
+        reset(type, color);
+    }
+
+    // Turns this block into a fresh one at the spawn position, so blocks can be reused
+    public void reset(int type, Color color) {
+        this.type = type;
+        this.rotation = 0;
+        this.shape = PieceTable.ROTATIONS[type][0];
         this.color = color;
         this.x = 0; // Start at the top-left corner
         this.y = 3; // Center horizontally
@@ -66,214 +94,815 @@ class Block {
 
     // Method to rotate the block 90 degrees clockwise
     public void rotate() {
+        rotation = (rotation + 1) & 3;
+        shape = PieceTable.ROTATIONS[type][rotation]; // precomputed, nothing is allocated
+    }
+}
+
+// Precomputed shapes and bit masks for every block type and rotation
+final class PieceTable {
+    static final int[][][] SHAPES = {
+        {{1, 1, 1, 1}}, // I-block
+        {{1, 1}, {1, 1}}, // O-block
+        {{1, 1, 1}, {0, 1, 0}}, // T-block
+        {{1, 1, 0}, {0, 1, 1}}, // Z-block
+        {{0, 1, 1}, {1, 1, 0}}, // S-block
+        {{1, 0, 0}, {1, 1, 1}}, // L-block
+        {{0, 0, 1}, {1, 1, 1}} // J-block
+    };
+    static final int TYPES = SHAPES.length;
+
+    static final int[][][][] ROTATIONS = new int[TYPES][4][][]; // shape after r clockwise turns
+    static final int[][][] ROW_MASKS = new int[TYPES][4][]; // one mask per shape row, bit j = column j
+    static final int[][] WIDTHS = new int[TYPES][4]; // columns covered by each rotation
+    static final int[] DISTINCT_ROTATIONS = new int[TYPES]; // rotations 0..n-1 are the different ones
+
+    static {
+        for (int type = 0; type < TYPES; type++) {
+            int[][] shape = SHAPES[type];
+            for (int rotation = 0; rotation < 4; rotation++) {
+                ROTATIONS[type][rotation] = shape;
+                WIDTHS[type][rotation] = shape[0].length;
+                int[] masks = new int[shape.length];
+                for (int i = 0; i < shape.length; i++) {
+                    for (int j = 0; j < shape[0].length; j++) {
+                        if (shape[i][j] != 0) masks[i] |= 1 << j;
+                    }
+                }
+                ROW_MASKS[type][rotation] = masks;
+                shape = rotateClockwise(shape);
+            }
+            int distinct = 1;
+            while (distinct < 4 && !Arrays.equals(ROW_MASKS[type][distinct], ROW_MASKS[type][0])) distinct++;
+            DISTINCT_ROTATIONS[type] = distinct;
+        }
+    }
+
+    private PieceTable() {}
+
+    // Same rotation as Block used to do in place
+    private static int[][] rotateClockwise(int[][] shape) {
         int[][] rotated = new int[shape[0].length][shape.length];
         for (int i = 0; i < shape.length; i++) {
             for (int j = 0; j < shape[0].length; j++) {
                 rotated[j][shape.length - 1 - i] = shape[i][j];
             }
         }
-        shape = rotated;
+        return rotated;
     }
 }
 
-// Main Tetris game class using Swing
-public class Question3b extends JPanel implements ActionListener, KeyListener {
-    private static final int BOARD_WIDTH = 10; // Width of the game board
-    private static final int BOARD_HEIGHT = 20; // Height of the game board
-    private static final int TILE_SIZE = 30; // Size of each tile in pixels
-    private static final int FPS = 10; // Frames per second (reduced for slower speed)
-    private static final int DELAY = 1000 / FPS; // Delay between frames in milliseconds
+// Game board stored as one int per row, bit j set when column j is filled.
+// Collision, placement and line clearing are a few word operations per piece row.
+class BitBoard {
+    final int width, height;
+    final int[] rows;
+    private final int fullRow;
 
-    private final int[][] gameBoard; // 2D array representing the game board
-    private final Queue<Block> blockQueue; // Queue to store the sequence of falling blocks
-    private Block currentBlock; // Current falling block
-    private int score; // Player's score
-    private final javax.swing.Timer timer; // Timer for game updates (explicitly use javax.swing.Timer)
+    public BitBoard(int width, int height) {
+        if (width > 31) throw new IllegalArgumentException("BitBoard supports at most 31 columns");
+        this.width = width;
+        this.height = height;
+        this.rows = new int[height];
+        this.fullRow = (1 << width) - 1;
+    }
+
+    // Checks if a piece fits with its top-left corner at (row, column)
+    public boolean fits(int type, int rotation, int row, int column) {
+        int[] masks = PieceTable.ROW_MASKS[type][rotation];
+        if (row < 0 || row + masks.length > height) return false;
+        if (column < 0 || column + PieceTable.WIDTHS[type][rotation] > width) return false;
+        for (int i = 0; i < masks.length; i++) {
+            if ((rows[row + i] & (masks[i] << column)) != 0) return false;
+        }
+        return true;
+    }
+
+    public void place(int type, int rotation, int row, int column) {
+        int[] masks = PieceTable.ROW_MASKS[type][rotation];
+        for (int i = 0; i < masks.length; i++) {
+            rows[row + i] |= masks[i] << column;
+        }
+    }
+
+    // Removes every full row, shifting the rows above down, and returns how many were removed
+    public int clearFullRows() {
+        int target = height - 1;
+        for (int source = height - 1; source >= 0; source--) {
+            if (rows[source] != fullRow) rows[target--] = rows[source];
+        }
+        int cleared = target + 1;
+        for (; target >= 0; target--) rows[target] = 0;
+        return cleared;
+    }
+
+    public boolean isFilled(int row, int column) {
+        return (rows[row] >>> column & 1) != 0;
+    }
+
+    public boolean isTopRowFilled() {
+        return rows[0] != 0;
+    }
+
+    public void clear() {
+        Arrays.fill(rows, 0);
+    }
+
+    public void copyFrom(BitBoard other) {
+        System.arraycopy(other.rows, 0, rows, 0, height);
+    }
+}
+
+// Headless Tetris rules with no Swing dependency, so games can run back-to-back on a server.
+// The random sequence comes from a seed, so a seed and the same inputs always replay the same game.
+// Blocks are recycled through the queue and the board is reused, so stepping allocates nothing.
+class TetrisEngine {
+    // Inputs accepted by step()
+    enum Input { LEFT, RIGHT, ROTATE, DOWN, TICK }
 
     // Predefined colors for blocks
-    private static final Color[] COLORS = {
+    static final Color[] COLORS = {
         Color.RED, Color.BLUE, Color.GREEN, Color.YELLOW, Color.ORANGE, Color.CYAN, Color.MAGENTA
     };
+    static final int PREVIEW = 1; // Blocks waiting in the queue after the current one
 
-    // Constructor to initialize the game
-    public Question3b() {
-        setPreferredSize(new Dimension(BOARD_WIDTH * TILE_SIZE, BOARD_HEIGHT * TILE_SIZE));
-        setBackground(Color.BLACK);
-        setFocusable(true);
-        addKeyListener(this);
+    final BitBoard board;
+    final Queue<Block> blockQueue = new ArrayDeque<>(PREVIEW); // Upcoming blocks, reused
+    private Block currentBlock;
+    private long seed, randomState;
+    private int score, piecesPlaced, linesCleared;
+    private long boardVersion; // Changes whenever the settled cells or the score change
+    private boolean gameOver;
 
-        gameBoard = new int[BOARD_HEIGHT][BOARD_WIDTH]; // Initialize empty game board
-        blockQueue = new LinkedList<>(); // Initialize empty block queue
-        score = 0; // Initialize score
-        generateNewBlock(); // Generate the first block
+    public TetrisEngine(int width, int height, long seed) {
+        board = new BitBoard(width, height);
+        currentBlock = new Block(0, COLORS[0]);
+        for (int i = 0; i < PREVIEW; i++) blockQueue.add(new Block(0, COLORS[0]));
+        reset(seed);
+    }
 
-        timer = new javax.swing.Timer(DELAY, this); // Use javax.swing.Timer
-        timer.start();
+    // Starts a new game on the same board and blocks
+    public void reset(long seed) {
+        board.clear();
+        this.seed = seed;
+        randomState = seed;
+        score = piecesPlaced = linesCleared = 0;
+        boardVersion++;
+        gameOver = false;
+        randomize(currentBlock);
+        for (Block block : blockQueue) randomize(block);
     }
 
-    // Method to generate a new random block and enqueue it
-    private void generateNewBlock() {
-        Random random = new Random();
-        int[][][] shapes = {
-            {{1, 1, 1, 1}}, // I-block
-            {{1, 1}, {1, 1}}, // O-block
-            {{1, 1, 1}, {0, 1, 0}}, // T-block
-            {{1, 1, 0}, {0, 1, 1}}, // Z-block
-            {{0, 1, 1}, {1, 1, 0}}, // S-block
-            {{1, 0, 0}, {1, 1, 1}}, // L-block
-            {{0, 0, 1}, {1, 1, 1}} // J-block
-        };
-        int[][] shape = shapes[random.nextInt(shapes.length)];
-        Color color = COLORS[random.nextInt(COLORS.length)]; // Use predefined colors
-        Block block = new Block(shape, color);
-        blockQueue.add(block);
-        if (currentBlock == null) {
-            currentBlock = blockQueue.poll();
-        }
-    }
-
-    // Method to check if a block can move to a new position
-    private boolean canMove(Block block, int newX, int newY) {
-        for (int i = 0; i < block.shape.length; i++) {
-            for (int j = 0; j < block.shape[0].length; j++) {
-                if (block.shape[i][j] != 0) {
-                    int x = newX + i;
-                    int y = newY + j;
-                    if (x < 0 || x >= BOARD_HEIGHT || y < 0 || y >= BOARD_WIDTH || gameBoard[x][y] != 0) {
-                        return false;
-                    }
-                }
-            }
+    public void step(Input input) {
+        switch (input) {
+            case LEFT: moveLeft(); break;
+            case RIGHT: moveRight(); break;
+            case ROTATE: rotate(); break;
+            case DOWN:
+            case TICK: moveDown(); break;
         }
-        return true;
     }
 
-    // Method to move the current block left
     public void moveLeft() {
-        if (canMove(currentBlock, currentBlock.x, currentBlock.y - 1)) {
+        if (!gameOver && board.fits(currentBlock.type, currentBlock.rotation, currentBlock.x, currentBlock.y - 1)) {
             currentBlock.y--;
         }
     }
 
-    // Method to move the current block right
     public void moveRight() {
-        if (canMove(currentBlock, currentBlock.x, currentBlock.y + 1)) {
+        if (!gameOver && board.fits(currentBlock.type, currentBlock.rotation, currentBlock.x, currentBlock.y + 1)) {
             currentBlock.y++;
         }
     }
 
-    // Method to rotate the current block
-    public void rotateBlock() {
-        Block rotatedBlock = new Block(currentBlock.shape, currentBlock.color);
-        rotatedBlock.rotate();
-        if (canMove(rotatedBlock, currentBlock.x, currentBlock.y)) {
+    public void rotate() {
+        if (!gameOver && board.fits(currentBlock.type, (currentBlock.rotation + 1) & 3, currentBlock.x, currentBlock.y)) {
             currentBlock.rotate();
         }
     }
 
-    // Method to move the current block down
+    // Moves the current block down one row, or places it when it cannot move; false when placed
     public boolean moveDown() {
-        if (canMove(currentBlock, currentBlock.x + 1, currentBlock.y)) {
+        if (gameOver) return false;
+        if (board.fits(currentBlock.type, currentBlock.rotation, currentBlock.x + 1, currentBlock.y)) {
             currentBlock.x++;
             return true;
-        } else {
-            placeBlock(); // Place the block on the game board
-            return false;
         }
+        placeBlock();
+        return false;
+    }
+
+    // Turns the current block to rotation, moves it to column from the spawn row and drops it.
+    // Returns false without changing anything if the block does not fit there.
+    public boolean dropAt(int rotation, int column) {
+        if (gameOver || !board.fits(currentBlock.type, rotation, currentBlock.x, column)) return false;
+        int row = currentBlock.x;
+        while (board.fits(currentBlock.type, rotation, row + 1, column)) row++;
+        currentBlock.rotation = rotation;
+        currentBlock.shape = PieceTable.ROTATIONS[currentBlock.type][rotation];
+        currentBlock.x = row;
+        currentBlock.y = column;
+        placeBlock();
+        return true;
     }
 
-    // Method to place the current block on the game board
+    // Places the current block, clears rows and brings in the next block from the queue
     private void placeBlock() {
-        for (int i = 0; i < currentBlock.shape.length; i++) {
-            for (int j = 0; j < currentBlock.shape[0].length; j++) {
-                if (currentBlock.shape[i][j] != 0) {
-                    gameBoard[currentBlock.x + i][currentBlock.y + j] = 1; // Mark as filled
+        board.place(currentBlock.type, currentBlock.rotation, currentBlock.x, currentBlock.y);
+        int cleared = board.clearFullRows();
+        score += 100 * cleared;
+        linesCleared += cleared;
+        piecesPlaced++;
+        boardVersion++;
+        gameOver = board.isTopRowFilled();
+
+        Block used = currentBlock;
+        currentBlock = blockQueue.poll();
+        randomize(used);
+        blockQueue.add(used);
+    }
+
+    private void randomize(Block block) {
+        block.reset(nextInt(PieceTable.TYPES), COLORS[nextInt(COLORS.length)]);
+    }
+
+    // SplitMix64, small and fully determined by the seed
+    private int nextInt(int bound) {
+        long z = (randomState += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) ((z >>> 33) % bound);
+    }
+
+    public Block currentBlock() {
+        return currentBlock;
+    }
+
+    public Block nextBlock() {
+        return blockQueue.peek();
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public int piecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public int linesCleared() {
+        return linesCleared;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public long boardVersion() {
+        return boardVersion;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    // Plays games back-to-back with random drops and reports pieces per second.
+    // Drops come from their own generator so the engine's seeded piece sequence is left alone.
+    static void benchmark(int games) {
+        TetrisEngine engine = new TetrisEngine(10, 20, 0);
+        SplittableRandom drops = new SplittableRandom(0);
+        long pieces = 0;
+        long start = System.nanoTime();
+        for (int game = 0; game < games; game++) {
+            engine.reset(game);
+            while (!engine.isGameOver()) {
+                Block block = engine.currentBlock();
+                int rotation = drops.nextInt(4);
+                int column = drops.nextInt(engine.board.width - PieceTable.WIDTHS[block.type][rotation] + 1);
+                if (!engine.dropAt(rotation, column)) break; // blocked at the spawn row
+            }
+            pieces += engine.piecesPlaced();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d pieces in %.2f s: %.1f million pieces/s%n",
+                games, pieces, seconds, pieces / seconds / 1e6);
+    }
+}
+
+// Automated player that tries every rotation and column for the current block and, for each,
+// every placement of the next block in the queue, then keeps the best-scoring pair.
+// Each first placement is one fork/join task; a task works on two scratch boards owned by its
+// worker thread, so the search copies boards with System.arraycopy instead of allocating.
+class TetrisBot {
+    // Weights for lines cleared, aggregate column height, holes and bumpiness
+    private static final double LINES = 0.760666, HEIGHT = -0.510066, HOLES = -0.35663, BUMPINESS = -0.184483;
+
+    private final ForkJoinPool pool;
+    private final LongAdder placementsEvaluated = new LongAdder();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public TetrisBot(int threads) {
+        pool = new ForkJoinPool(threads);
+    }
+
+    // Best (rotation, column) for the current block packed as rotation << 16 | column, or -1 if none fits
+    public int bestMove(TetrisEngine engine) {
+        Block current = engine.currentBlock();
+        Block next = engine.nextBlock();
+        int nextType = next == null ? -1 : next.type;
+        BitBoard board = engine.board;
+
+        List<PlacementTask> tasks = new ArrayList<>();
+        for (int rotation = 0; rotation < PieceTable.DISTINCT_ROTATIONS[current.type]; rotation++) {
+            for (int column = 0; column + PieceTable.WIDTHS[current.type][rotation] <= board.width; column++) {
+                if (board.fits(current.type, rotation, current.x, column)) {
+                    tasks.add(new PlacementTask(board, current.type, rotation, current.x, column, nextType));
                 }
             }
         }
-        checkCompletedRows(); // Check for completed rows
-        currentBlock = blockQueue.poll(); // Get the next block
-        generateNewBlock(); // Generate a new block
+        if (tasks.isEmpty()) return -1;
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        PlacementTask best = tasks.get(0);
+        for (PlacementTask task : tasks) {
+            if (task.score > best.score) best = task;
+        }
+        return best.rotation << 16 | best.column;
+    }
+
+    // Plays one move; false when the block cannot be placed anywhere
+    public boolean playMove(TetrisEngine engine) {
+        int move = bestMove(engine);
+        return move >= 0 && engine.dropAt(move >>> 16, move & 0xFFFF);
+    }
+
+    public long placementsEvaluated() {
+        return placementsEvaluated.sum();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
     }
 
-    // Method to check for completed rows and update the score
-    private void checkCompletedRows() {
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            boolean isComplete = true;
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                if (gameBoard[i][j] == 0) {
-                    isComplete = false;
-                    break;
+    // Scores one placement of the current block together with the best follow-up for the next block
+    private class PlacementTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BitBoard source;
+        private final int type, rotation, row, column, nextType;
+        double score;
+
+        PlacementTask(BitBoard source, int type, int rotation, int row, int column, int nextType) {
+            this.source = source;
+            this.type = type;
+            this.rotation = rotation;
+            this.row = row;
+            this.column = column;
+            this.nextType = nextType;
+        }
+
+        @Override
+        protected void compute() {
+            Scratch s = scratch.get();
+            s.ensureSize(source.width, source.height);
+            s.first.copyFrom(source);
+            int lines = drop(s.first, type, rotation, row, column);
+            long evaluated = 1;
+
+            score = Double.NEGATIVE_INFINITY;
+            if (nextType >= 0) {
+                for (int r = 0; r < PieceTable.DISTINCT_ROTATIONS[nextType]; r++) {
+                    for (int c = 0; c + PieceTable.WIDTHS[nextType][r] <= source.width; c++) {
+                        if (!s.first.fits(nextType, r, 0, c)) continue;
+                        s.second.copyFrom(s.first);
+                        int moreLines = drop(s.second, nextType, r, 0, c);
+                        score = Math.max(score, evaluate(s.second, lines + moreLines, s.heights));
+                        evaluated++;
+                    }
                 }
             }
-            if (isComplete) {
-                removeRow(i); // Remove the completed row
-                score += 100; // Increase the score
+            if (score == Double.NEGATIVE_INFINITY) {
+                score = evaluate(s.first, lines, s.heights); // no follow-up fits, judge this board alone
             }
+            placementsEvaluated.add(evaluated);
         }
     }
 
-    // Method to remove a completed row and shift rows down
-    private void removeRow(int row) {
-        for (int i = row; i > 0; i--) {
-            gameBoard[i] = Arrays.copyOf(gameBoard[i - 1], BOARD_WIDTH);
+    // Drops a piece straight down from (row, column), places it and returns the rows cleared
+    private static int drop(BitBoard board, int type, int rotation, int row, int column) {
+        while (board.fits(type, rotation, row + 1, column)) row++;
+        board.place(type, rotation, row, column);
+        return board.clearFullRows();
+    }
+
+    // Weighted sum of lines cleared, aggregate height, holes and bumpiness, read from the row masks
+    static double evaluate(BitBoard board, int lines, int[] heights) {
+        int seen = 0, holes = 0;
+        Arrays.fill(heights, 0, board.width, 0);
+        for (int r = 0; r < board.height; r++) {
+            int row = board.rows[r];
+            holes += Integer.bitCount(seen & ~row); // empty cells under a filled one
+            for (int top = row & ~seen; top != 0; top &= top - 1) {
+                heights[Integer.numberOfTrailingZeros(top)] = board.height - r;
+            }
+            seen |= row;
+        }
+        int aggregate = heights[0], bumpiness = 0;
+        for (int c = 1; c < board.width; c++) {
+            aggregate += heights[c];
+            bumpiness += Math.abs(heights[c] - heights[c - 1]);
         }
-        Arrays.fill(gameBoard[0], 0); // Clear the top row
+        return LINES * lines + HEIGHT * aggregate + HOLES * holes + BUMPINESS * bumpiness;
     }
 
-    // Method to check if the game is over
-    public boolean isGameOver() {
-        for (int j = 0; j < BOARD_WIDTH; j++) {
-            if (gameBoard[0][j] != 0) {
-                return true;
+    // Per-thread boards for the search
+    private static class Scratch {
+        BitBoard first, second;
+        int[] heights;
+
+        void ensureSize(int width, int height) {
+            if (first == null || first.width != width || first.height != height) {
+                first = new BitBoard(width, height);
+                second = new BitBoard(width, height);
+                heights = new int[width];
             }
         }
-        return false;
     }
 
-    // Method to paint the game board and blocks
+    // Bot games capped at maxPieces each, reporting placements per second and games per hour
+    static void benchmark(int games, int maxPieces, int threads) {
+        TetrisBot bot = new TetrisBot(threads);
+        TetrisEngine engine = new TetrisEngine(10, 20, 0);
+        long pieces = 0, lines = 0;
+        long start = System.nanoTime();
+        for (int game = 0; game < games; game++) {
+            engine.reset(game);
+            while (!engine.isGameOver() && engine.piecesPlaced() < maxPieces && bot.playMove(engine)) {
+                // keep playing
+            }
+            pieces += engine.piecesPlaced();
+            lines += engine.linesCleared();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        bot.shutdown();
+        System.out.printf("%d threads: %d games, %d pieces, %d lines in %.2f s, %.2f million placements/s, %.0f games/hour%n",
+                threads, games, pieces, lines, seconds, bot.placementsEvaluated() / seconds / 1e6, games / seconds * 3600);
+    }
+}
+
+// Records a game as its seed plus every input, in a compact binary file.
+// Layout: int magic, int width, int height, long seed, then one byte per run of equal inputs
+// (low 3 bits the Input ordinal, high 5 bits the run length minus one). Bytes collect in a
+// direct buffer; a full buffer is handed to a writer thread and a free one taken from a small
+// pool, so the game loop never waits on the FileChannel. record and close are synchronized:
+// close may come from a shutdown hook while the EDT is still recording, and is idempotent.
+class ReplayRecorder implements Closeable {
+    static final int MAGIC = 0x54525031; // "TRP1"
+    private static final int MAX_RUN = 32;
+    private static final int BUFFERS = 4;
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(BUFFERS);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "replay-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile IOException writeFailure; // set by the writer, reported by record or close
+    private ByteBuffer buffer;
+    private TetrisEngine.Input pendingInput;
+    private int pendingCount;
+    private boolean closed;
+
+    // Must be created before the engine receives its first input
+    public ReplayRecorder(Path file, TetrisEngine engine) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        for (int i = 0; i < BUFFERS; i++) freeBuffers.add(ByteBuffer.allocateDirect(1 << 16));
+        buffer = freeBuffers.poll();
+        buffer.putInt(MAGIC).putInt(engine.board.width).putInt(engine.board.height).putLong(engine.seed());
+    }
+
+    public synchronized void record(TetrisEngine.Input input) throws IOException {
+        if (closed) return;
+        if (writeFailure != null) throw writeFailure;
+        if (input == pendingInput && pendingCount < MAX_RUN) {
+            pendingCount++;
+            return;
+        }
+        writePending();
+        pendingInput = input;
+        pendingCount = 1;
+    }
+
+    private void writePending() throws IOException {
+        if (pendingCount == 0) return;
+        if (!buffer.hasRemaining()) handOff();
+        buffer.put((byte) (pendingInput.ordinal() | (pendingCount - 1) << 3));
+        pendingCount = 0;
+    }
+
+    // Queues the current buffer for writing and continues in a free one. Waits only if every
+    // buffer is still queued, i.e. the disk is BUFFERS x 64 KB behind.
+    private void handOff() throws IOException {
+        ByteBuffer full = buffer;
+        full.flip();
+        writer.execute(() -> {
+            try {
+                while (full.hasRemaining()) channel.write(full);
+            } catch (IOException e) {
+                writeFailure = e;
+            }
+            full.clear();
+            freeBuffers.add(full);
+        });
+        try {
+            buffer = freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the replay writer");
+        }
+    }
+
+    // Writes what is left, waits for the writer and closes the file; later calls do nothing
     @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            writePending();
+            handOff();
+            writer.shutdown();
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                throw new IOException("Timed out writing the replay");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while finishing the replay");
+        } finally {
+            writer.shutdownNow();
+            channel.close();
+        }
+        if (writeFailure != null) throw writeFailure;
+    }
+}
 
-        // Draw the game board
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                if (gameBoard[i][j] != 0) {
-                    g.setColor(Color.GRAY);
-                    g.fillRect(j * TILE_SIZE, i * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-                }
+// Re-simulates a recorded game headlessly as fast as the engine runs
+class ReplayPlayer {
+    private static final TetrisEngine.Input[] INPUTS = TetrisEngine.Input.values();
+
+    private ReplayPlayer() {}
+
+    // Final engine state after applying every recorded input
+    public static TetrisEngine replay(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.remaining() < 20 || data.getInt() != ReplayRecorder.MAGIC) {
+                throw new IOException(file + " is not a Tetris replay");
+            }
+            int width = data.getInt(), height = data.getInt();
+            TetrisEngine engine = new TetrisEngine(width, height, data.getLong());
+            while (data.hasRemaining()) {
+                int event = data.get() & 0xFF;
+                TetrisEngine.Input input = INPUTS[event & 7];
+                for (int run = (event >>> 3) + 1; run > 0; run--) engine.step(input);
             }
+            return engine;
+        }
+    }
+}
+
+// Paint-time statistics for the game panel
+class FrameStats {
+    private long frames, totalNanos, maxNanos;
+    private final long[] buckets = new long[32]; // buckets[i] counts frames that took < 2^i microseconds
+
+    public void record(long nanos) {
+        frames++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+        long micros = nanos / 1_000;
+        buckets[Math.min(64 - Long.numberOfLeadingZeros(micros), buckets.length - 1)]++;
+    }
+
+    // Upper bound in microseconds of the bucket holding the given fraction of frames
+    public long percentileMicros(double fraction) {
+        long target = (long) Math.ceil(frames * fraction), seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= target) return 1L << i;
+        }
+        return 1L << (buckets.length - 1);
+    }
+
+    @Override
+    public String toString() {
+        if (frames == 0) return "no frames";
+        return String.format("%d frames, mean %.1f us, p99 < %d us, max %.1f us",
+                frames, totalNanos / 1e3 / frames, percentileMicros(0.99), maxNanos / 1e3);
+    }
+}
+
+// Main Tetris game class using Swing
+// Only draws a TetrisEngine and turns timer ticks and key presses into engine inputs.
+// Settled cells and the score are drawn once into an offscreen layer that is redrawn only when
+// the engine's board version changes; each frame copies the layer and draws the falling block
+// on top, and a move repaints only the rectangles the block left and entered.
+public class Question3b extends JPanel implements ActionListener, KeyListener {
+    private static final int BOARD_WIDTH = 10; // Width of the game board
+    private static final int BOARD_HEIGHT = 20; // Height of the game board
+    private static final int TILE_SIZE = 30; // Size of each tile in pixels
+    private static final int FPS = 10; // Frames per second (reduced for slower speed)
+    private static final int DELAY = 1000 / FPS; // Delay between frames in milliseconds
+
+    private final TetrisEngine engine; // Board, blocks and score
+    private final javax.swing.Timer timer; // Timer for game updates (explicitly use javax.swing.Timer)
+    private final int tileSize;
+
+    private BufferedImage boardLayer; // Settled cells and score, cached between board changes
+    private long layerVersion = -1; // Engine board version drawn into boardLayer
+    private final Rectangle blockBounds = new Rectangle(); // Where the falling block was last drawn
+    private final FrameStats frameStats = new FrameStats();
+    private volatile ReplayRecorder recorder; // Set while the game is being recorded; read by the shutdown hook
+
+    // Constructor to initialize the game
+    public Question3b() {
+        this(System.nanoTime());
+    }
+
+    // Constructor for a game with a fixed random sequence
+    public Question3b(long seed) {
+        this(BOARD_WIDTH, BOARD_HEIGHT, TILE_SIZE, seed);
+    }
+
+    // Constructor for a board of any size up to 31 columns
+    public Question3b(int width, int height, int tileSize, long seed) {
+        this.tileSize = tileSize;
+        setPreferredSize(new Dimension(width * tileSize, height * tileSize));
+        setBackground(Color.BLACK);
+        setOpaque(true);
+        setFocusable(true);
+        addKeyListener(this);
+
+        engine = new TetrisEngine(width, height, seed);
+
+        timer = new javax.swing.Timer(DELAY, this); // Use javax.swing.Timer; started by start()
+    }
+
+    // Starts the gravity timer; attach a recorder with startRecording first, so no tick is missed
+    public void start() {
+        timer.start();
+    }
+
+    // Method to move the current block left
+    public void moveLeft() {
+        engine.moveLeft();
+        record(TetrisEngine.Input.LEFT);
+    }
+
+    // Method to move the current block right
+    public void moveRight() {
+        engine.moveRight();
+        record(TetrisEngine.Input.RIGHT);
+    }
+
+    // Method to rotate the current block
+    public void rotateBlock() {
+        engine.rotate();
+        record(TetrisEngine.Input.ROTATE);
+    }
+
+    // Method to move the current block down
+    public boolean moveDown() {
+        boolean moved = engine.moveDown();
+        record(TetrisEngine.Input.DOWN);
+        return moved;
+    }
+
+    // Records every following input to file; must be called before start()
+    public void startRecording(Path file) throws IOException {
+        if (timer.isRunning()) {
+            throw new IllegalStateException("Recording must start before the game does");
         }
+        recorder = new ReplayRecorder(file, engine);
+    }
+
+    // Safe from any thread: the recorder serializes close with a record in progress on the EDT
+    public void stopRecording() {
+        ReplayRecorder current = recorder;
+        if (current == null) return;
+        recorder = null;
+        try {
+            current.close();
+        } catch (IOException e) {
+            System.err.println("Could not finish the replay: " + e.getMessage());
+        }
+    }
+
+    private void record(TetrisEngine.Input input) {
+        ReplayRecorder current = recorder;
+        if (current == null) return;
+        try {
+            current.record(input);
+        } catch (IOException e) {
+            System.err.println("Recording stopped: " + e.getMessage());
+            stopRecording();
+        }
+    }
+
+    // Method to check if the game is over
+    public boolean isGameOver() {
+        return engine.isGameOver();
+    }
+
+    // Method to paint the game board and blocks
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        updateBoardLayer();
+        g.drawImage(boardLayer, 0, 0, null); // Swing clips this to the dirty region
 
         // Draw the current block
+        Block currentBlock = engine.currentBlock();
         if (currentBlock != null) {
             g.setColor(currentBlock.color);
             for (int i = 0; i < currentBlock.shape.length; i++) {
                 for (int j = 0; j < currentBlock.shape[0].length; j++) {
                     if (currentBlock.shape[i][j] != 0) {
-                        g.fillRect((currentBlock.y + j) * TILE_SIZE, (currentBlock.x + i) * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+                        g.fillRect((currentBlock.y + j) * tileSize, (currentBlock.x + i) * tileSize, tileSize, tileSize);
                     }
                 }
             }
         }
+        frameStats.record(System.nanoTime() - start);
+    }
+
+    // Redraws the cached layer if the settled cells or the score changed since it was drawn
+    private void updateBoardLayer() {
+        int width = Math.max(getWidth(), 1), height = Math.max(getHeight(), 1);
+        if (boardLayer == null || boardLayer.getWidth() != width || boardLayer.getHeight() != height) {
+            GraphicsConfiguration config = getGraphicsConfiguration();
+            boardLayer = config != null
+                    ? config.createCompatibleImage(width, height) // matches the screen format, fastest to copy
+                    : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            layerVersion = -1;
+        }
+        if (layerVersion == engine.boardVersion()) return;
 
+        Graphics2D layer = boardLayer.createGraphics();
+        layer.setColor(getBackground());
+        layer.fillRect(0, 0, width, height);
+        // Draw the game board
+        BitBoard board = engine.board;
+        layer.setColor(Color.GRAY);
+        for (int i = 0; i < board.height; i++) {
+            for (int bits = board.rows[i]; bits != 0; bits &= bits - 1) {
+                int j = Integer.numberOfTrailingZeros(bits);
+                layer.fillRect(j * tileSize, i * tileSize, tileSize, tileSize);
+            }
+        }
         // Draw the score
-        g.setColor(Color.WHITE);
-        g.drawString("Score: " + score, 10, 20);
+        layer.setColor(Color.WHITE);
+        layer.drawString("Score: " + engine.score(), 10, 20);
+        layer.dispose();
+        layerVersion = engine.boardVersion();
+    }
+
+    // Repaints everything after a board change, otherwise only where the falling block moved
+    private void repaintChanges() {
+        Block currentBlock = engine.currentBlock();
+        int x = currentBlock.y * tileSize, y = currentBlock.x * tileSize;
+        int w = currentBlock.shape[0].length * tileSize, h = currentBlock.shape.length * tileSize;
+        if (layerVersion != engine.boardVersion()) {
+            repaint();
+        } else {
+            repaint(blockBounds.union(new Rectangle(x, y, w, h)));
+        }
+        blockBounds.setBounds(x, y, w, h);
+    }
+
+    public FrameStats frameStats() {
+        return frameStats;
     }
 
     // Method to handle game updates
     @Override
     public void actionPerformed(ActionEvent e) {
         if (!isGameOver()) {
-            if (!moveDown()) {
-                if (isGameOver()) {
-                    timer.stop();
-                    JOptionPane.showMessageDialog(this, "Game Over! Final Score: " + score);
-                }
+            engine.step(TetrisEngine.Input.TICK);
+            record(TetrisEngine.Input.TICK);
+            repaintChanges();
+            if (isGameOver()) {
+                timer.stop();
+                stopRecording();
+                System.out.println("Frame times: " + frameStats);
+                JOptionPane.showMessageDialog(this, "Game Over! Final Score: " + engine.score());
             }
-            repaint();
         }
     }
 
@@ -294,7 +923,7 @@ public class Question3b extends JPanel implements ActionListener, KeyListener {
                 moveDown();
                 break;
         }
-        repaint();
+        repaintChanges();
     }
 
     @Override
@@ -305,11 +934,49 @@ public class Question3b extends JPanel implements ActionListener, KeyListener {
 
     // Main method to run the game
     public static void main(String[] args) {
+        // Run with "bench" to time headless games instead of opening the window
+        if (args.length > 0 && args[0].equals("bench")) {
+            TetrisEngine.benchmark(100_000);
+            return;
+        }
+        // Run with "botbench" to time the placement search
+        if (args.length > 0 && args[0].equals("botbench")) {
+            for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+                TetrisBot.benchmark(20, 1_000, threads);
+            }
+            return;
+        }
+        // Run with "replay <file>" to fast-forward a recorded game and print its final state
+        if (args.length > 1 && args[0].equals("replay")) {
+            try {
+                long start = System.nanoTime();
+                TetrisEngine engine = ReplayPlayer.replay(Paths.get(args[1]));
+                System.out.printf("Replayed in %.1f ms: score %d, %d pieces, %d lines, game over: %b%n",
+                        (System.nanoTime() - start) / 1e6, engine.score(), engine.piecesPlaced(),
+                        engine.linesCleared(), engine.isGameOver());
+            } catch (IOException e) {
+                System.err.println("Could not replay " + args[1] + ": " + e.getMessage());
+            }
+            return;
+        }
         JFrame frame = new JFrame("Tetris Game");
-        Question3b game = new Question3b();
+        // Run with "large" for a tall board with small tiles, to compare frame times
+        Question3b game = args.length > 0 && args[0].equals("large")
+                ? new Question3b(31, 160, 5, System.nanoTime())
+                : new Question3b();
+        // Run with "record <file>" to save the game for replaying later
+        if (args.length > 1 && args[0].equals("record")) {
+            try {
+                game.startRecording(Paths.get(args[1]));
+                Runtime.getRuntime().addShutdownHook(new Thread(game::stopRecording));
+            } catch (IOException e) {
+                System.err.println("Could not record to " + args[1] + ": " + e.getMessage());
+            }
+        }
         frame.add(game);
         frame.pack();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setVisible(true);
+        game.start(); // only now, after any recorder is attached
     }
 }
\ No newline at end of file
@@ -7,9 +7,23 @@
 // #TechLife: Appeared in tweet IDs 16 and 18, with a total count of 2 mentions.
 // #WorkLife: Appeared in tweet ID 15, with a total count of 1 mention.
 // Note: Output table is sorted in descending order by hashtag_count and hashtag respectively.
-// Time: O(n×m+klogk)
+// Time: O(n*m+klogk)
+// SpaceSavingCounter: O(n*m*log c) time and O(c) memory for c counters, whatever the number of hashtags.
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Question4a {
     public static void main(String[] args) {
@@ -80,6 +94,1023 @@ public class Question4a {
 
         // Print the table footer.
         System.out.println("+-------------+---------+");
+
+        // Same top 3, streamed from a tweet file through a bounded Space-Saving counter
+        try {
+            Path tweetFile = Files.createTempFile("tweets", ".tsv");
+            writeTweets(tweetFile, tweets);
+            SpaceSavingCounter counter = new SpaceSavingCounter(100);
+            counter.addAll(tweetFile);
+            printTable(counter.top(3));
+
+            // And counted in parallel shards of the memory-mapped file
+            printTable(countInParallel(tweetFile, 4).subList(0, 3));
+            Files.delete(tweetFile);
+
+            // Top 3 of the last 7 days, kept up to date tweet by tweet
+            WindowedHashtagCounter trending = new WindowedHashtagCounter(7, 3, null);
+            for (Map<String, String> tweet : tweets) trending.add(tweet.get("tweet_date"), tweet.get("tweet"));
+            printTable(trending.top(3));
+
+            // Same tweets held column by column, counted on hashtag ids
+            TweetStore store = TweetStore.of(tweets);
+            printTable(store.top(3));
+
+            // Run with "bench" to compare throughput with the HashMap loop,
+            // or "mem" to compare the memory of HashMap records and the TweetStore
+            if (args.length > 0 && args[0].equals("bench")) {
+                benchmark(3_000_000);
+            } else if (args.length > 0 && args[0].equals("mem")) {
+                memoryReport(10_000_000);
+            }
+        } catch (IOException e) {
+            System.err.println("Streaming count failed: " + e.getMessage());
+        }
+    }
+
+    // A hashtag and how many times it was mentioned
+    static class HashtagCount {
+        final String hashtag;
+        final long count;
+
+        HashtagCount(String hashtag, long count) {
+            this.hashtag = hashtag;
+            this.count = count;
+        }
+    }
+
+    // Same ordering as the table: count descending, then hashtag name ascending
+    static final Comparator<HashtagCount> BY_COUNT_THEN_NAME = (a, b) -> {
+        int countCompare = Long.compare(b.count, a.count);
+        if (countCompare != 0) return countCompare;
+        return a.hashtag.compareTo(b.hashtag);
+    };
+
+    // Prints hashtag counts in the same table format as main
+    static void printTable(List<HashtagCount> rows) {
+        System.out.println("+-------------+---------+");
+        System.out.println("|   HASHTAG   |  COUNT  |");
+        System.out.println("+-------------+---------+");
+        for (HashtagCount row : rows) {
+            System.out.printf("| %-11s | %-7d |%n", row.hashtag, row.count);
+        }
+        System.out.println("+-------------+---------+");
+    }
+
+    // Calls action with every lowercased hashtag in text, as chars[0, length) of a reused buffer.
+    // Words are separated by single spaces and a hashtag is a word starting with '#', as with
+    // split(" ") and startsWith("#") in main, but found with one scan and no regex. ASCII words
+    // are lowercased char by char; any other word goes through String.toLowerCase() like main,
+    // since case mapping outside ASCII can change the length or depend on neighbouring chars.
+    // Only that fallback allocates; the chars are valid until action returns.
+    static void forEachHashtag(CharSequence text, char[] scratch, HashtagConsumer action) {
+        boolean asciiFastPath = asciiLowerCaseMatchesLocale();
+        int length = text.length();
+        int start = 0;
+        while (start <= length) {
+            int end = start;
+            while (end < length && text.charAt(end) != ' ') end++;
+            if (end > start && text.charAt(start) == '#') {
+                if (end - start > scratch.length) scratch = new char[end - start];
+                boolean ascii = asciiFastPath;
+                for (int i = start; i < end; i++) {
+                    char c = text.charAt(i);
+                    if (c >= 0x80) ascii = false;
+                    scratch[i - start] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+                }
+                if (ascii) {
+                    action.accept(scratch, end - start);
+                } else {
+                    String lower = text.subSequence(start, end).toString().toLowerCase();
+                    if (lower.length() > scratch.length) scratch = new char[lower.length()];
+                    lower.getChars(0, lower.length(), scratch, 0);
+                    action.accept(scratch, lower.length());
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    interface HashtagConsumer {
+        void accept(char[] chars, int length);
+    }
+
+    // String.toLowerCase() uses the default locale, and in Turkish, Azeri and Lithuanian even
+    // ASCII letters lowercase differently (I becomes a dotless i), so the fast paths are off there
+    static boolean asciiLowerCaseMatchesLocale() {
+        String language = Locale.getDefault().getLanguage();
+        return !language.equals("tr") && !language.equals("az") && !language.equals("lt");
+    }
+
+    // Tweet files hold one tweet per line: user_id, tweet_id, tweet and tweet_date separated by tabs.
+    // Returns the tweet text column of a line without splitting the whole line.
+    static String tweetText(String line) {
+        int first = line.indexOf('\t');
+        int second = line.indexOf('\t', first + 1);
+        int third = line.indexOf('\t', second + 1);
+        if (first < 0 || second < 0 || third < 0) {
+            throw new IllegalArgumentException("Expected 4 tab-separated columns: " + line);
+        }
+        return line.substring(second + 1, third);
+    }
+
+    // Writes tweets in the tab-separated file format
+    static void writeTweets(Path file, List<Map<String, String>> tweets) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Map<String, String> tweet : tweets) {
+                writer.write(tweet.get("user_id") + "\t" + tweet.get("tweet_id") + "\t"
+                        + tweet.get("tweet") + "\t" + tweet.get("tweet_date"));
+                writer.newLine();
+            }
+        }
+    }
+
+    // Space-Saving top-k: keeps at most capacity counters no matter how many distinct hashtags arrive.
+    // A new hashtag takes over the smallest counter and inherits its count as possible error, so any
+    // hashtag mentioned more than total / capacity times is always kept with its exact count.
+    // Counters sit in a min-heap by count, so finding the one to replace is O(1) and a
+    // count update is O(log capacity). Everything is primitive arrays: each counter keeps its
+    // hashtag chars in a reused buffer and its own heap position, and an open-addressing table
+    // of counter numbers finds a hashtag by hashing and comparing its chars in place.
+    static class SpaceSavingCounter {
+        private final int capacity;
+        private final char[][] keys; // hashtag of each counter in keys[c][0, keyLength[c])
+        private final int[] keyLength, keyHash;
+        private final long[] counts, errors;
+        private final int[] heap; // heap position -> counter
+        private final int[] position; // counter -> heap position
+        private final int[] table; // counter + 1 per slot, 0 for an empty slot
+        private final int mask;
+        private int size;
+        private long total;
+
+        SpaceSavingCounter(int capacity) {
+            this.capacity = capacity;
+            keys = new char[capacity][];
+            keyLength = new int[capacity];
+            keyHash = new int[capacity];
+            counts = new long[capacity];
+            errors = new long[capacity];
+            heap = new int[capacity];
+            position = new int[capacity];
+            table = new int[Integer.highestOneBit(Math.max(capacity, 1)) * 4]; // load factor at most 1/2
+            mask = table.length - 1;
+        }
+
+        void add(String hashtag) {
+            add(hashtag.toCharArray(), hashtag.length());
+        }
+
+        void add(char[] chars, int length) {
+            total++;
+            int hash = HashtagDictionary.hash(chars, length);
+            int slot = find(chars, length, hash);
+            if (table[slot] != 0) {
+                int counter = table[slot] - 1;
+                counts[counter]++;
+                siftDown(position[counter]);
+            } else if (size < capacity) {
+                int counter = size++;
+                setKey(counter, chars, length, hash);
+                table[slot] = counter + 1;
+                counts[counter] = 1;
+                errors[counter] = 0;
+                heap[counter] = counter;
+                position[counter] = counter;
+                siftUp(counter);
+            } else {
+                // Replace the least-counted hashtag at the heap root
+                int counter = heap[0];
+                removeFromTable(counter);
+                setKey(counter, chars, length, hash);
+                table[find(chars, length, hash)] = counter + 1; // the removal may have moved slots
+                errors[counter] = counts[counter];
+                counts[counter]++;
+                siftDown(0);
+            }
+        }
+
+        // Counts every hashtag of every tweet text
+        void addAll(Iterator<String> tweetTexts) {
+            char[] scratch = new char[64];
+            while (tweetTexts.hasNext()) forEachHashtag(tweetTexts.next(), scratch, this::add);
+        }
+
+        // Reads a tweet file line by line, so only the counters stay in memory
+        void addAll(Path tweetFile) throws IOException {
+            char[] scratch = new char[64];
+            try (BufferedReader reader = Files.newBufferedReader(tweetFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) forEachHashtag(tweetText(line), scratch, this::add);
+                }
+            }
+        }
+
+        // The k most mentioned hashtags, ordered like the table
+        List<HashtagCount> top(int k) {
+            List<HashtagCount> all = new ArrayList<>(size);
+            for (int c = 0; c < size; c++) all.add(new HashtagCount(new String(keys[c], 0, keyLength[c]), counts[c]));
+            all.sort(BY_COUNT_THEN_NAME);
+            return all.subList(0, Math.min(k, all.size()));
+        }
+
+        // Largest amount by which the count of hashtag may be overstated, or -1 if it is not tracked
+        long maxError(String hashtag) {
+            char[] chars = hashtag.toCharArray();
+            int slot = find(chars, chars.length, HashtagDictionary.hash(chars, chars.length));
+            return table[slot] == 0 ? -1 : errors[table[slot] - 1];
+        }
+
+        long total() {
+            return total;
+        }
+
+        // Slot holding the hashtag, or the empty slot where it would go
+        private int find(char[] chars, int length, int hash) {
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                int counter = table[slot] - 1;
+                if (keyHash[counter] == hash && keyLength[counter] == length
+                        && Arrays.equals(keys[counter], 0, length, chars, 0, length)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        // Empties the counter's slot and shifts later entries of its probe run back into the gap,
+        // so lookups never need tombstones
+        private void removeFromTable(int counter) {
+            int hole = keyHash[counter] & mask;
+            while (table[hole] != counter + 1) hole = (hole + 1) & mask;
+            for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+                int home = keyHash[table[next] - 1] & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) { // the gap lies on its probe path
+                    table[hole] = table[next];
+                    hole = next;
+                }
+            }
+            table[hole] = 0;
+        }
+
+        private void setKey(int counter, char[] chars, int length, int hash) {
+            if (keys[counter] == null || keys[counter].length < length) keys[counter] = new char[Math.max(length, 16)];
+            System.arraycopy(chars, 0, keys[counter], 0, length);
+            keyLength[counter] = length;
+            keyHash[counter] = hash;
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0 && counts[heap[(slot - 1) / 2]] > counts[heap[slot]]) {
+                swap(slot, (slot - 1) / 2);
+                slot = (slot - 1) / 2;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int child = 2 * slot + 1;
+                if (child >= size) return;
+                if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) child++;
+                if (counts[heap[slot]] <= counts[heap[child]]) return;
+                swap(slot, child);
+                slot = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int counter = heap[a]; heap[a] = heap[b]; heap[b] = counter;
+            position[heap[a]] = a;
+            position[heap[b]] = b;
+        }
+    }
+
+    // Open-addressing hash table from hashtag bytes to a count, built from primitive arrays.
+    // Key bytes are copied once into a shared arena; slots keep the offset, length and hash of
+    // their key, so lookups compare ints first and touch key bytes only on a hash match.
+    static class HashtagTable {
+        private int[] keyOffset, keyLength, keyHash; // keyLength 0 marks an empty slot
+        private long[] counts;
+        private byte[] arena = new byte[1 << 16];
+        private int arenaSize, size, mask;
+
+        HashtagTable() {
+            allocate(1 << 10);
+        }
+
+        void add(byte[] bytes, int from, int length, long amount) {
+            int hash = hash(bytes, from, length);
+            int slot = hash & mask;
+            while (keyLength[slot] != 0) {
+                if (keyHash[slot] == hash && keyLength[slot] == length
+                        && Arrays.equals(arena, keyOffset[slot], keyOffset[slot] + length, bytes, from, from + length)) {
+                    counts[slot] += amount;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (arenaSize + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+            }
+            System.arraycopy(bytes, from, arena, arenaSize, length);
+            keyOffset[slot] = arenaSize;
+            keyLength[slot] = length;
+            keyHash[slot] = hash;
+            counts[slot] = amount;
+            arenaSize += length;
+            if (++size * 2 > keyLength.length) grow(); // keep the load factor under 1/2
+        }
+
+        // Adds every count of other into this table
+        void addAll(HashtagTable other) {
+            for (int slot = 0; slot < other.keyLength.length; slot++) {
+                if (other.keyLength[slot] != 0) {
+                    add(other.arena, other.keyOffset[slot], other.keyLength[slot], other.counts[slot]);
+                }
+            }
+        }
+
+        // Every hashtag with its count, ordered like the table
+        List<HashtagCount> ranking() {
+            List<HashtagCount> rows = new ArrayList<>(size);
+            for (int slot = 0; slot < keyLength.length; slot++) {
+                if (keyLength[slot] != 0) {
+                    String hashtag = new String(arena, keyOffset[slot], keyLength[slot], StandardCharsets.UTF_8);
+                    rows.add(new HashtagCount(hashtag, counts[slot]));
+                }
+            }
+            rows.sort(BY_COUNT_THEN_NAME);
+            return rows;
+        }
+
+        private void grow() {
+            int[] oldOffset = keyOffset, oldLength = keyLength, oldHash = keyHash;
+            long[] oldCounts = counts;
+            allocate(oldLength.length * 2);
+            for (int old = 0; old < oldLength.length; old++) {
+                if (oldLength[old] == 0) continue;
+                int slot = oldHash[old] & mask;
+                while (keyLength[slot] != 0) slot = (slot + 1) & mask;
+                keyOffset[slot] = oldOffset[old];
+                keyLength[slot] = oldLength[old];
+                keyHash[slot] = oldHash[old];
+                counts[slot] = oldCounts[old];
+            }
+        }
+
+        private void allocate(int slots) {
+            keyOffset = new int[slots];
+            keyLength = new int[slots];
+            keyHash = new int[slots];
+            counts = new long[slots];
+            mask = slots - 1;
+        }
+
+        private static int hash(byte[] bytes, int from, int length) {
+            int h = 0x811C9DC5; // FNV-1a
+            for (int i = from; i < from + length; i++) h = (h ^ bytes[i]) * 0x01000193;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // Counts hashtags of a tweet file on several threads.
+    // The file is memory-mapped in shards that start and end on line boundaries; each shard is
+    // counted into its own HashtagTable straight from the mapped bytes, and the tables are merged
+    // at the end. The result is the full ranking, ordered exactly like the table in main.
+    static List<HashtagCount> countInParallel(Path tweetFile, int threads) throws IOException {
+        try (FileChannel channel = FileChannel.open(tweetFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // A few shards per thread keep the threads busy when tweets are unevenly spread
+            long shardSize = Math.min(Math.max(size / (threads * 4L), 1 << 20), Integer.MAX_VALUE - (1 << 20));
+            List<long[]> shards = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(start + shardSize, size);
+                end = nextLineStart(channel, end, size);
+                shards.add(new long[]{start, end});
+                start = end;
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<Future<HashtagTable>> results = new ArrayList<>();
+                for (long[] shard : shards) {
+                    results.add(pool.submit(() -> countShard(channel.map(FileChannel.MapMode.READ_ONLY,
+                            shard[0], shard[1] - shard[0]), shard[0])));
+                }
+                HashtagTable merged = new HashtagTable();
+                for (Future<HashtagTable> result : results) merged.addAll(result.get());
+                return merged.ranking();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while counting hashtags", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof MalformedLineException) {
+                    long offset = ((MalformedLineException) e.getCause()).offset;
+                    throw new IllegalArgumentException("Line " + lineNumberAt(channel, offset) + " of " + tweetFile
+                            + " (byte offset " + offset + "): expected 4 tab-separated columns");
+                }
+                throw new IOException("Counting a shard failed", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // A line of a shard without the 4 columns; offset is where the line starts in the file
+    private static class MalformedLineException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final long offset;
+
+        MalformedLineException(long offset) {
+            super(null, null, false, false);
+            this.offset = offset;
+        }
+    }
+
+    // 1-based number of the line starting at offset; only used to report a malformed line
+    private static long lineNumberAt(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long line = 1;
+        for (long position = 0; position < offset; ) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read && position + i < offset; i++) {
+                if (buffer.get(i) == '\n') line++;
+            }
+            position += read;
+        }
+        return line;
+    }
+
+    // Position just after the first newline at or after position, or size
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position >= size) return size;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Counts one shard of whole lines: the tweet column is found by tabs, hashtags by spaces
+    // Empty lines are skipped and any other line without 4 columns is an error, as in countWithHashMap
+    private static HashtagTable countShard(ByteBuffer shard, long shardOffset) {
+        HashtagTable table = new HashtagTable();
+        byte[] token = new byte[256];
+        int limit = shard.limit();
+        int position = 0;
+        while (position < limit) {
+            int tabs = 0, textStart = -1, lineEnd = position;
+            while (lineEnd < limit && shard.get(lineEnd) != '\n') {
+                if (shard.get(lineEnd) == '\t' && ++tabs == 2) textStart = lineEnd + 1;
+                if (tabs == 3) break;
+                lineEnd++;
+            }
+            boolean empty = lineEnd == position || lineEnd == position + 1 && shard.get(position) == '\r'; // as readLine
+            if (tabs < 3 && !empty) throw new MalformedLineException(shardOffset + position);
+            if (tabs == 3) {
+                int textEnd = lineEnd; // the third tab ends the tweet text
+                int start = textStart;
+                while (start <= textEnd) {
+                    int end = start;
+                    while (end < textEnd && shard.get(end) != ' ') end++;
+                    if (end > start && shard.get(start) == '#') {
+                        if (end - start > token.length) token = new byte[end - start];
+                        addHashtag(table, shard, start, end, token);
+                    }
+                    start = end + 1;
+                }
+            }
+            while (lineEnd < limit && shard.get(lineEnd) != '\n') lineEnd++;
+            position = lineEnd + 1;
+        }
+        return table;
+    }
+
+    // Lowercases a hashtag into token and counts it; non-ASCII text goes through String.toLowerCase
+    private static void addHashtag(HashtagTable table, ByteBuffer shard, int start, int end, byte[] token) {
+        int length = end - start;
+        boolean ascii = asciiLowerCaseMatchesLocale();
+        for (int i = 0; i < length; i++) {
+            byte b = shard.get(start + i);
+            if (b < 0) ascii = false;
+            token[i] = b;
+        }
+        if (ascii) {
+            for (int i = 0; i < length; i++) {
+                if (token[i] >= 'A' && token[i] <= 'Z') token[i] += 'a' - 'A';
+            }
+            table.add(token, 0, length, 1);
+        } else {
+            byte[] lower = new String(token, 0, length, StandardCharsets.UTF_8).toLowerCase()
+                    .getBytes(StandardCharsets.UTF_8);
+            table.add(lower, 0, lower.length, 1);
+        }
+    }
+
+    // The original HashMap loop of main, reading the same tweet file
+    static List<HashtagCount> countWithHashMap(Path tweetFile) throws IOException {
+        Map<String, Integer> hashtagCounts = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(tweetFile, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) continue;
+                String text;
+                try {
+                    text = tweetText(line);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + tweetFile
+                            + ": expected 4 tab-separated columns", e);
+                }
+                for (String word : text.split(" ")) {
+                    if (word.startsWith("#")) {
+                        String hashtag = word.toLowerCase();
+                        hashtagCounts.put(hashtag, hashtagCounts.getOrDefault(hashtag, 0) + 1);
+                    }
+                }
+            }
+        }
+        List<HashtagCount> rows = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : hashtagCounts.entrySet()) {
+            rows.add(new HashtagCount(entry.getKey(), entry.getValue()));
+        }
+        rows.sort(BY_COUNT_THEN_NAME);
+        return rows;
+    }
+
+    // Generates a synthetic tweet file and compares MB/s of the HashMap loop and the parallel count
+    static void benchmark(int tweetCount) throws IOException {
+        Path file = Files.createTempFile("tweets-bench", ".tsv");
+        try {
+            Random random = new Random(4);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < tweetCount; i++) {
+                    writer.write((100 + i % 1000) + "\t" + i + "\tJust another day at work");
+                    for (int h = random.nextInt(4); h > 0; h--) {
+                        writer.write(" #Topic" + (int) Math.abs(random.nextGaussian() * 2_000));
+                    }
+                    writer.write("\t2024-02-" + String.format("%02d", 1 + random.nextInt(28)));
+                    writer.newLine();
+                }
+            }
+            double megabytes = Files.size(file) / 1e6;
+
+            long start = System.nanoTime();
+            List<HashtagCount> expected = countWithHashMap(file);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%.0f MB, HashMap loop: %.0f MB/s%n", megabytes, megabytes / seconds);
+
+            for (int threads = 1; threads <= 8; threads *= 2) {
+                start = System.nanoTime();
+                List<HashtagCount> ranking = countInParallel(file, threads);
+                seconds = (System.nanoTime() - start) / 1e9;
+                boolean same = ranking.size() == expected.size();
+                for (int i = 0; same && i < ranking.size(); i++) {
+                    same = ranking.get(i).hashtag.equals(expected.get(i).hashtag)
+                            && ranking.get(i).count == expected.get(i).count;
+                }
+                System.out.printf("Parallel, %d threads: %.0f MB/s, same ranking: %b%n", threads, megabytes / seconds, same);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Interns hashtags to dense int ids 0, 1, 2, ... in order of first appearance.
+    // An open-addressing table of ids is probed with the hash of the caller's char range and
+    // compared against the stored names in place, so only a new hashtag allocates its String.
+    static class HashtagDictionary {
+        private final List<String> names = new ArrayList<>();
+        private int[] hashes = new int[16]; // hash of each id's name
+        private int[] table = new int[64]; // id + 1 per slot, 0 for an empty slot
+
+        int idOf(char[] chars, int length) {
+            int hash = hash(chars, length);
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                int id = table[slot] - 1;
+                if (hashes[id] == hash && matches(names.get(id), chars, length)) return id;
+                slot = (slot + 1) & mask;
+            }
+            int id = names.size();
+            names.add(new String(chars, 0, length));
+            if (id == hashes.length) hashes = Arrays.copyOf(hashes, id * 2);
+            hashes[id] = hash;
+            table[slot] = id + 1;
+            if (names.size() * 2 > table.length) grow(); // keep the load factor under 1/2
+            return id;
+        }
+
+        String name(int id) {
+            return names.get(id);
+        }
+
+        int size() {
+            return names.size();
+        }
+
+        private static boolean matches(String name, char[] chars, int length) {
+            if (name.length() != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (name.charAt(i) != chars[i]) return false;
+            }
+            return true;
+        }
+
+        private void grow() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int id = 0; id < names.size(); id++) {
+                int slot = hashes[id] & mask;
+                while (table[slot] != 0) slot = (slot + 1) & mask;
+                table[slot] = id + 1;
+            }
+        }
+
+        // Also used by SpaceSavingCounter for its own table
+        static int hash(char[] chars, int length) {
+            int h = 0x811C9DC5; // FNV-1a over chars
+            for (int i = 0; i < length; i++) h = (h ^ chars[i]) * 0x01000193;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // Counts per hashtag id for one time bucket: an open-addressing int -> long map.
+    // A slot is live only if its stamp equals the current generation, so clear() just bumps
+    // the generation and a whole bucket expires in O(1).
+    static class BucketCounts {
+        private int[] keys = new int[64], stamps = new int[64];
+        private long[] values = new long[64];
+        private int generation = 1, size;
+
+        void add(int key, long amount) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B9 >>> 7) & mask;
+            while (stamps[slot] == generation) {
+                if (keys[slot] == key) {
+                    values[slot] += amount;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            stamps[slot] = generation;
+            keys[slot] = key;
+            values[slot] = amount;
+            if (++size * 2 > keys.length) grow();
+        }
+
+        void clear() {
+            generation++;
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        // Calls action for every (key, count) in the bucket
+        void forEach(KeyCountConsumer action) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (stamps[slot] == generation) action.accept(keys[slot], values[slot]);
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys, oldStamps = stamps;
+            long[] oldValues = values;
+            int oldGeneration = generation;
+            keys = new int[oldKeys.length * 2];
+            stamps = new int[keys.length];
+            values = new long[keys.length];
+            generation = 1;
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldStamps[slot] == oldGeneration) add(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    interface KeyCountConsumer {
+        void accept(int key, long count);
+    }
+
+    // Receives the top hashtags of every tumbling window once the window has closed
+    interface WindowListener {
+        void windowClosed(LocalDate start, LocalDate endExclusive, List<HashtagCount> top);
+    }
+
+    // Trending hashtags over the last windowDays days of tweet_date, updated as tweets arrive.
+    // Days live in a ring of windowDays buckets; moving to a new day reuses the oldest bucket
+    // after clearing it in O(1). Queries add up only the buckets inside the window, never older
+    // tweets. Hashtags are interned to int ids, so buckets hold primitive ids and counts.
+    // Tumbling windows are the aligned blocks of windowDays days (by epoch day); when one closes,
+    // its top hashtags are passed to the listener.
+    static class WindowedHashtagCounter {
+        private final int windowDays;
+        private final BucketCounts[] buckets;
+        private final HashtagDictionary dictionary = new HashtagDictionary();
+        private final int tumblingTopK;
+        private final WindowListener listener;
+        private final char[] scratch = new char[64];
+        private long latestDay = Long.MIN_VALUE; // newest tweet_date seen, as an epoch day
+        private long lateTweets; // tweets older than the window when they arrived
+        private long[] queryCounts = new long[16];
+        private int[] queryStamp = new int[16];
+        private int[] queryIds = new int[16]; // hashtag ids found by the current query
+        private int queryIdCount, queryGeneration;
+
+        WindowedHashtagCounter(int windowDays, int tumblingTopK, WindowListener listener) {
+            this.windowDays = windowDays;
+            this.tumblingTopK = tumblingTopK;
+            this.listener = listener;
+            buckets = new BucketCounts[windowDays];
+            for (int i = 0; i < windowDays; i++) buckets[i] = new BucketCounts();
+        }
+
+        // Counts the hashtags of one tweet; tweetDate is yyyy-MM-dd
+        void add(String tweetDate, String tweetText) {
+            long day = epochDay(tweetDate);
+            if (latestDay == Long.MIN_VALUE) latestDay = day;
+            if (day > latestDay) advanceTo(day);
+            if (day <= latestDay - windowDays) {
+                lateTweets++;
+                return;
+            }
+            BucketCounts bucket = buckets[(int) Math.floorMod(day, (long) windowDays)];
+            forEachHashtag(tweetText, scratch, (chars, length) -> bucket.add(dictionary.idOf(chars, length), 1));
+        }
+
+        // Counts one line of a tweet file
+        void addLine(String line) {
+            int lastTab = line.lastIndexOf('\t');
+            add(line.substring(lastTab + 1).trim(), tweetText(line));
+        }
+
+        // Top k hashtags over the whole window, ending at the newest day seen
+        List<HashtagCount> top(int k) {
+            return top(k, windowDays);
+        }
+
+        // Top k hashtags over the last days days (at most windowDays), ordered like the table
+        List<HashtagCount> top(int k, int days) {
+            if (days > windowDays) {
+                throw new IllegalArgumentException("Only the last " + windowDays + " days are kept");
+            }
+            List<HashtagCount> result = new ArrayList<>();
+            if (latestDay == Long.MIN_VALUE || k <= 0) return result;
+
+            // Sum the buckets in range into queryCounts, listing each hashtag id once
+            queryGeneration++;
+            queryIdCount = 0;
+            for (long day = latestDay - days + 1; day <= latestDay; day++) {
+                buckets[(int) Math.floorMod(day, (long) windowDays)].forEach((id, count) -> {
+                    ensureQueryCapacity(id);
+                    if (queryStamp[id] != queryGeneration) {
+                        queryStamp[id] = queryGeneration;
+                        queryCounts[id] = 0;
+                        if (queryIdCount == queryIds.length) queryIds = Arrays.copyOf(queryIds, queryIdCount * 2);
+                        queryIds[queryIdCount++] = id;
+                    }
+                    queryCounts[id] += count;
+                });
+            }
+
+            // Keep the k best in a heap whose root is the weakest of them
+            PriorityQueue<HashtagCount> best = new PriorityQueue<>(k, BY_COUNT_THEN_NAME.reversed());
+            for (int i = 0; i < queryIdCount; i++) {
+                int id = queryIds[i];
+                HashtagCount candidate = new HashtagCount(dictionary.name(id), queryCounts[id]);
+                if (best.size() < k) {
+                    best.add(candidate);
+                } else if (BY_COUNT_THEN_NAME.compare(candidate, best.peek()) < 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            }
+            result.addAll(best);
+            result.sort(BY_COUNT_THEN_NAME);
+            return result;
+        }
+
+        long lateTweets() {
+            return lateTweets;
+        }
+
+        // Moves the newest day forward, closing tumbling windows and expiring the oldest buckets.
+        // After windowDays steps every bucket is empty, so longer gaps cost no more than that.
+        private void advanceTo(long day) {
+            long steps = Math.min(day - latestDay, windowDays);
+            for (long step = 1; step <= steps; step++) {
+                long next = latestDay + 1;
+                if (listener != null && Math.floorMod(next, (long) windowDays) == 0 && !windowIsEmpty()) {
+                    listener.windowClosed(LocalDate.ofEpochDay(next - windowDays), LocalDate.ofEpochDay(next),
+                            top(tumblingTopK));
+                }
+                buckets[(int) Math.floorMod(next, (long) windowDays)].clear(); // held day next - windowDays
+                latestDay = next;
+            }
+            latestDay = day;
+        }
+
+        private boolean windowIsEmpty() {
+            for (BucketCounts bucket : buckets) {
+                if (!bucket.isEmpty()) return false;
+            }
+            return true;
+        }
+
+        private void ensureQueryCapacity(int id) {
+            if (id < queryCounts.length) return;
+            int size = Math.max(id + 1, queryCounts.length * 2);
+            queryCounts = Arrays.copyOf(queryCounts, size);
+            queryStamp = Arrays.copyOf(queryStamp, size);
+        }
+
+        // yyyy-MM-dd to days since 1970-01-01
+        static long epochDay(String date) {
+            int year = Integer.parseInt(date, 0, 4, 10);
+            int month = Integer.parseInt(date, 5, 7, 10);
+            int dayOfMonth = Integer.parseInt(date, 8, 10, 10);
+            return LocalDate.of(year, month, dayOfMonth).toEpochDay();
+        }
+    }
+
+    // Column-oriented tweet records: one primitive array per field instead of a HashMap per tweet.
+    // user_id and tweet_id are longs, tweet_date is an epoch day, and tweet texts are UTF-8 bytes
+    // packed into one arena with start offsets. Hashtags are interned once into an int dictionary
+    // and each tweet keeps the ids of its hashtags, so counting works on ints, not strings.
+    static class TweetStore {
+        private long[] userIds = new long[16], tweetIds = new long[16];
+        private int[] dates = new int[16];
+        private int[] textStart = new int[17]; // text of tweet i is textBytes[textStart[i], textStart[i + 1])
+        private byte[] textBytes = new byte[1024];
+        private int[] hashtagStart = new int[17]; // hashtag ids of tweet i, likewise in hashtagIds
+        private int[] hashtagIds = new int[32];
+        private final HashtagDictionary dictionary = new HashtagDictionary();
+        private final char[] scratch = new char[64];
+        private int size;
+
+        static TweetStore of(List<Map<String, String>> tweets) {
+            TweetStore store = new TweetStore();
+            for (Map<String, String> tweet : tweets) {
+                store.add(tweet.get("user_id"), tweet.get("tweet_id"), tweet.get("tweet"), tweet.get("tweet_date"));
+            }
+            return store;
+        }
+
+        // Adds one tweet; the ids must be numeric and tweetDate is yyyy-MM-dd
+        void add(String userId, String tweetId, String tweet, String tweetDate) {
+            if (size == userIds.length) {
+                int capacity = size * 2;
+                userIds = Arrays.copyOf(userIds, capacity);
+                tweetIds = Arrays.copyOf(tweetIds, capacity);
+                dates = Arrays.copyOf(dates, capacity);
+                textStart = Arrays.copyOf(textStart, capacity + 1);
+                hashtagStart = Arrays.copyOf(hashtagStart, capacity + 1);
+            }
+            userIds[size] = Long.parseLong(userId);
+            tweetIds[size] = Long.parseLong(tweetId);
+            dates[size] = Math.toIntExact(WindowedHashtagCounter.epochDay(tweetDate));
+
+            byte[] bytes = tweet.getBytes(StandardCharsets.UTF_8);
+            int textEnd = textStart[size] + bytes.length;
+            if (textEnd < 0) throw new IllegalStateException("Tweet texts exceed 2 GB");
+            if (textEnd > textBytes.length) {
+                textBytes = Arrays.copyOf(textBytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(textEnd, 2L * textBytes.length)));
+            }
+            System.arraycopy(bytes, 0, textBytes, textStart[size], bytes.length);
+            textStart[size + 1] = textEnd;
+
+            hashtagStart[size + 1] = hashtagStart[size];
+            forEachHashtag(tweet, scratch, (chars, length) -> {
+                int end = hashtagStart[size + 1];
+                if (end == hashtagIds.length) hashtagIds = Arrays.copyOf(hashtagIds, end * 2);
+                hashtagIds[end] = dictionary.idOf(chars, length);
+                hashtagStart[size + 1] = end + 1;
+            });
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long userId(int i) {
+            return userIds[i];
+        }
+
+        long tweetId(int i) {
+            return tweetIds[i];
+        }
+
+        LocalDate date(int i) {
+            return LocalDate.ofEpochDay(dates[i]);
+        }
+
+        String text(int i) {
+            return new String(textBytes, textStart[i], textStart[i + 1] - textStart[i], StandardCharsets.UTF_8);
+        }
+
+        // Number of hashtags in tweet i and the dictionary id of its jth hashtag
+        int hashtagCount(int i) {
+            return hashtagStart[i + 1] - hashtagStart[i];
+        }
+
+        int hashtagId(int i, int j) {
+            return hashtagIds[hashtagStart[i] + j];
+        }
+
+        String hashtag(int id) {
+            return dictionary.name(id);
+        }
+
+        int distinctHashtags() {
+            return dictionary.size();
+        }
+
+        // Rebuilds the map form of tweet i, as created by createTweet
+        Map<String, String> toMap(int i) {
+            return createTweet(Long.toString(userIds[i]), Long.toString(tweetIds[i]), text(i), date(i).toString());
+        }
+
+        // Mentions per hashtag id for tweets dated from..to (inclusive)
+        long[] countHashtags(LocalDate from, LocalDate to) {
+            long fromDay = from.toEpochDay(), toDay = to.toEpochDay();
+            long[] counts = new long[dictionary.size()];
+            for (int i = 0; i < size; i++) {
+                if (dates[i] < fromDay || dates[i] > toDay) continue;
+                for (int h = hashtagStart[i]; h < hashtagStart[i + 1]; h++) counts[hashtagIds[h]]++;
+            }
+            return counts;
+        }
+
+        // Top k hashtags of all tweets, ordered like the table
+        List<HashtagCount> top(int k) {
+            return top(k, LocalDate.MIN, LocalDate.MAX);
+        }
+
+        List<HashtagCount> top(int k, LocalDate from, LocalDate to) {
+            long[] counts = countHashtags(from, to);
+            List<HashtagCount> rows = new ArrayList<>();
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) rows.add(new HashtagCount(dictionary.name(id), counts[id]));
+            }
+            rows.sort(BY_COUNT_THEN_NAME);
+            return rows.subList(0, Math.min(k, rows.size()));
+        }
+    }
+
+    // Measures heap bytes per tweet for the HashMap records and the TweetStore on a sample of
+    // synthetic tweets, and scales both to tweetCount tweets
+    static void memoryReport(int tweetCount) {
+        int sample = 200_000;
+        Random random = new Random(7);
+        String[] texts = new String[1000];
+        for (int i = 0; i < texts.length; i++) {
+            StringBuilder text = new StringBuilder("Just another day at work");
+            for (int h = random.nextInt(4); h > 0; h--) text.append(" #Topic").append(random.nextInt(2_000));
+            texts[i] = text.toString();
+        }
+
+        long before = usedHeap();
+        List<Map<String, String>> maps = new ArrayList<>(sample);
+        for (int i = 0; i < sample; i++) {
+            // Fresh strings per tweet with their own contents, as when parsing input; new String(String)
+            // would share the sample text's bytes and hide them from the measurement
+            String text = new String(texts[i % texts.length].toCharArray());
+            maps.add(createTweet(Integer.toString(100 + i % 1000), Integer.toString(i),
+                    text, "2024-02-" + String.format("%02d", 1 + i % 28)));
+        }
+        double mapBytes = (double) (usedHeap() - before) / sample;
+
+        // The map records stay reachable, so the next difference is the store alone
+        before = usedHeap();
+        TweetStore store = TweetStore.of(maps);
+        double storeBytes = (double) (usedHeap() - before) / store.size();
+        java.lang.ref.Reference.reachabilityFence(maps);
+
+        System.out.printf("HashMap records: %.0f bytes/tweet, TweetStore: %.0f bytes/tweet%n", mapBytes, storeBytes);
+        System.out.printf("For %,d tweets: %.2f GB vs %.2f GB, %.2f GB saved%n", tweetCount,
+                mapBytes * tweetCount / 1e9, storeBytes * tweetCount / 1e9,
+                (mapBytes - storeBytes) * tweetCount / 1e9);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
     }
 
     // Helper method to create a tweet map
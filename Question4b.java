@@ -1,4 +1,7 @@
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Question4b {
     public static void main(String[] args) {
@@ -17,6 +20,346 @@ public class Question4b {
         // Find the minimum number of roads to traverse for Input 2
         int minRoads2 = findMinRoads(packages2, roads2);
         System.out.println("Minimum number of roads to traverse for Input 2: " + minRoads2);
+
+        // Linear-time solver on a CSR road tree, run on fresh copies since findMinRoads
+        // above cleared the collected packages
+        int[] fresh1 = {1, 0, 0, 0, 0, 1};
+        int[] fresh2 = {0, 0, 0, 1, 1, 0, 0, 1};
+        System.out.println("Minimum number of roads (linear solver) for Input 1: " + findMinRoadsFast(fresh1, roads1));
+        System.out.println("Minimum number of roads (linear solver) for Input 2: " + findMinRoadsFast(fresh2, roads2));
+
+        // A path of 10^7 locations with a package every 1000 locations
+        if (args.length > 0 && args[0].equals("large")) {
+            int n = 10_000_000;
+            int[] from = new int[n - 1], to = new int[n - 1];
+            for (int i = 0; i < n - 1; i++) {
+                from[i] = i;
+                to[i] = i + 1;
+            }
+            int[] packages = new int[n];
+            for (int i = 500; i < n; i += 1000) packages[i] = 1;
+            long start = System.nanoTime();
+            RoadTree tree = new RoadTree(n, from, to);
+            long minRoads = findMinRoadsFast(packages, tree);
+            System.out.printf("10^7 locations: %d roads in %d ms%n", minRoads, (System.nanoTime() - start) / 1_000_000);
+
+            // Many delivery rounds on the same tree through the route service
+            start = System.nanoTime();
+            PackageRouteService service = new PackageRouteService(tree);
+            System.out.printf("Route service built in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            Random random = new Random(22);
+            int[][] rounds = new int[100_000][];
+            for (int r = 0; r < rounds.length; r++) {
+                rounds[r] = new int[1 + random.nextInt(20)];
+                for (int i = 0; i < rounds[r].length; i++) rounds[r][i] = random.nextInt(n);
+            }
+            for (int threads = 1; threads <= 4; threads *= 2) {
+                start = System.nanoTime();
+                long[] answers = service.minRoads(rounds, threads);
+                double micros = (System.nanoTime() - start) / 1e3 / rounds.length;
+                System.out.printf("%d rounds, %d threads: %.1f us per round (first answer %d)%n",
+                        rounds.length, threads, micros, answers[0]);
+            }
+        }
+
+        // Input 2 again, then other delivery rounds on the same roads, given as package locations
+        PackageRouteService service = new PackageRouteService(new RoadTree(packages2.length, roads2));
+        int[][] rounds = {{3, 4, 7}, {6, 7}, {3, 6}, {0}, {}};
+        System.out.println("Delivery rounds on the roads of Input 2: " + Arrays.toString(service.minRoads(rounds, 2)));
+    }
+
+    // Answers findMinRoads for many package sets on one road tree.
+    // The tree is rooted at location 0 and preprocessed once: parent, depth, subtree size and a
+    // heavy-first Euler tour (entry times), whose heavy paths give O(log n) lowest common ancestors.
+    // A query with k packages builds the virtual tree of the packages and their pairwise LCAs,
+    // at most 2k - 1 nodes, and never touches the rest of the tree: O(k log n) per query.
+    static class PackageRouteService {
+        private static final int NONE = Integer.MIN_VALUE / 4; // distance to a package where there is none
+        private final int n;
+        private final int[] parent, depth, size, entry, heavyHead;
+
+        PackageRouteService(RoadTree tree) {
+            n = tree.n;
+            parent = new int[n];
+            depth = new int[n];
+            size = new int[n];
+            entry = new int[n];
+            heavyHead = new int[n];
+            if (n == 0) return;
+
+            // Iterative DFS order from location 0 gives parents and depths, then sizes bottom-up
+            int[] order = new int[n];
+            int[] heavy = new int[n];
+            int count = 0;
+            parent[0] = -1;
+            order[count++] = 0;
+            for (int i = 0; i < count; i++) {
+                int v = order[i];
+                for (int e = tree.offsets[v]; e < tree.offsets[v + 1]; e++) {
+                    int child = tree.adjacent[e];
+                    if (child == parent[v]) continue;
+                    parent[child] = v;
+                    depth[child] = depth[v] + 1;
+                    order[count++] = child;
+                }
+            }
+            if (count != n) throw new IllegalArgumentException("The roads do not connect all locations");
+            Arrays.fill(heavy, -1);
+            for (int i = n - 1; i >= 0; i--) {
+                int v = order[i];
+                size[v]++;
+                if (parent[v] >= 0) {
+                    size[parent[v]] += size[v];
+                }
+            }
+            for (int i = 1; i < n; i++) {
+                int v = order[i], p = parent[v];
+                if (heavy[p] < 0 || size[v] > size[heavy[p]]) heavy[p] = v;
+            }
+
+            // Euler tour with the heavy child first, so every heavy path has consecutive entry times
+            int[] stack = order; // order is no longer needed
+            int top = 0, time = 0;
+            stack[top++] = 0;
+            heavyHead[0] = 0;
+            while (top > 0) {
+                int v = stack[--top];
+                entry[v] = time++;
+                for (int e = tree.offsets[v]; e < tree.offsets[v + 1]; e++) {
+                    int child = tree.adjacent[e];
+                    if (child == parent[v] || child == heavy[v]) continue;
+                    heavyHead[child] = child;
+                    stack[top++] = child;
+                }
+                if (heavy[v] >= 0) {
+                    heavyHead[heavy[v]] = heavyHead[v];
+                    stack[top++] = heavy[v]; // popped next
+                }
+            }
+        }
+
+        // Lowest common ancestor by climbing heavy paths
+        int lca(int u, int v) {
+            while (heavyHead[u] != heavyHead[v]) {
+                if (depth[heavyHead[u]] > depth[heavyHead[v]]) {
+                    u = parent[heavyHead[u]];
+                } else {
+                    v = parent[heavyHead[v]];
+                }
+            }
+            return depth[u] < depth[v] ? u : v;
+        }
+
+        private boolean isAncestor(int u, int v) {
+            return entry[u] <= entry[v] && entry[v] < entry[u] + size[u];
+        }
+
+        // Same answer as findMinRoadsFast for packages at the given locations.
+        // A road is walked iff both sides of it hold a package at distance 2 or more from the road,
+        // as those are exactly the roads left after the trimming. A virtual-tree edge stands for a
+        // path of roads, so the roads of the path meeting the condition are counted at once.
+        long minRoads(int[] packageLocations) {
+            // Package locations ordered by entry time, without duplicates
+            long[] keys = new long[packageLocations.length];
+            for (int i = 0; i < keys.length; i++) {
+                int v = packageLocations[i];
+                if (v < 0 || v >= n) throw new IllegalArgumentException("No location " + v);
+                keys[i] = (long) entry[v] << 32 | v;
+            }
+            int k = sortedDistinct(keys, keys.length);
+            if (k < 2) return 0;
+
+            // Add the LCA of each neighbouring pair: that closes the set under LCA
+            long[] nodes = Arrays.copyOf(keys, 2 * k - 1);
+            for (int i = 1; i < k; i++) {
+                int l = lca((int) keys[i - 1], (int) keys[i]);
+                nodes[k + i - 1] = (long) entry[l] << 32 | l;
+            }
+            int m = sortedDistinct(nodes, nodes.length);
+
+            // Virtual parents from a stack of ancestors; in entry order, parents come before children
+            int[] virtualParent = new int[m];
+            int[] length = new int[m]; // roads from the node up to its virtual parent
+            int[] down = new int[m]; // farthest package at or below the node
+            int[] stack = new int[m];
+            int top = 0;
+            for (int i = 0; i < m; i++) {
+                int v = (int) nodes[i];
+                while (top > 0 && !isAncestor((int) nodes[stack[top - 1]], v)) top--;
+                virtualParent[i] = top > 0 ? stack[top - 1] : -1;
+                length[i] = top > 0 ? depth[v] - depth[(int) nodes[stack[top - 1]]] : 0;
+                stack[top++] = i;
+                down[i] = Arrays.binarySearch(keys, 0, k, nodes[i]) >= 0 ? 0 : NONE;
+            }
+
+            // Bottom-up: down distances, and the two best child branches of every node
+            int[] best1 = new int[m], best2 = new int[m], bestChild = new int[m];
+            Arrays.fill(best1, NONE);
+            Arrays.fill(best2, NONE);
+            for (int i = m - 1; i > 0; i--) {
+                int p = virtualParent[i];
+                int branch = down[i] + length[i];
+                if (branch > best1[p]) {
+                    best2[p] = best1[p];
+                    best1[p] = branch;
+                    bestChild[p] = i;
+                } else if (branch > best2[p]) {
+                    best2[p] = branch;
+                }
+                down[p] = Math.max(down[p], branch);
+            }
+
+            // Top-down: up[i] is the farthest package from i's virtual parent outside i's subtree
+            int[] up = new int[m];
+            long roads = 0;
+            for (int i = 1; i < m; i++) {
+                int p = virtualParent[i];
+                int outside = Arrays.binarySearch(keys, 0, k, nodes[p]) >= 0 ? 0 : NONE;
+                if (p > 0) outside = Math.max(outside, up[p] + length[p]);
+                outside = Math.max(outside, bestChild[p] == i ? best2[p] : best1[p]);
+                up[i] = outside;
+
+                // Road j of the path (j = 1 at the child end) is walked iff
+                // down[i] + j - 1 >= 2 and up[i] + length[i] - j >= 2
+                long first = Math.max(1, 3L - down[i]);
+                long last = Math.min(length[i], (long) length[i] + up[i] - 2);
+                if (last >= first) roads += last - first + 1;
+            }
+            return 2 * roads;
+        }
+
+        // Answers every package set, spread over threads
+        long[] minRoads(int[][] packageSets, int threads) {
+            long[] answers = new long[packageSets.length];
+            int chunk = Math.max(1, (packageSets.length + threads * 4 - 1) / (threads * 4));
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                for (int from = 0; from < packageSets.length; from += chunk) {
+                    int start = from, end = Math.min(packageSets.length, from + chunk);
+                    results.add(pool.submit(() -> {
+                        for (int i = start; i < end; i++) answers[i] = minRoads(packageSets[i]);
+                    }));
+                }
+                for (Future<?> result : results) result.get();
+                return answers;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while answering package sets", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        // Sorts the first count keys and removes duplicates; returns how many remain
+        private static int sortedDistinct(long[] keys, int count) {
+            Arrays.sort(keys, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || keys[i] != keys[distinct - 1]) keys[distinct++] = keys[i];
+            }
+            return distinct;
+        }
+    }
+
+    // The road network as a tree in CSR form: the neighbours of location v are
+    // adjacent[offsets[v]] .. adjacent[offsets[v + 1] - 1]. Two int arrays instead of a list per location.
+    static class RoadTree {
+        final int n;
+        final int[] offsets, adjacent;
+
+        RoadTree(int n, int[][] roads) {
+            this(n, column(roads, 0), column(roads, 1));
+        }
+
+        // Roads are from[i] - to[i]
+        RoadTree(int n, int[] from, int[] to) {
+            if (n > 0 && from.length != n - 1) {
+                throw new IllegalArgumentException("A tree of " + n + " locations needs " + (n - 1) + " roads");
+            }
+            this.n = n;
+            offsets = new int[n + 1];
+            for (int i = 0; i < from.length; i++) {
+                offsets[from[i] + 1]++;
+                offsets[to[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+            adjacent = new int[2 * from.length];
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int i = 0; i < from.length; i++) {
+                adjacent[next[from[i]]++] = to[i];
+                adjacent[next[to[i]]++] = from[i];
+            }
+        }
+
+        int degree(int v) {
+            return offsets[v + 1] - offsets[v];
+        }
+
+        private static int[] column(int[][] roads, int index) {
+            int[] values = new int[roads.length];
+            for (int i = 0; i < roads.length; i++) values[i] = roads[i][index];
+            return values;
+        }
+    }
+
+    // O(n) version of findMinRoads that leaves packages unchanged.
+    // Leaves without a package are never worth visiting, so they are trimmed repeatedly. Every
+    // remaining leaf has a package, and since packages are collected from distance 2, two more
+    // layers of leaves can be trimmed. The walk then covers each remaining road twice, once out
+    // and once back.
+    public static long findMinRoadsFast(int[] packages, int[][] roads) {
+        return findMinRoadsFast(packages, new RoadTree(packages.length, roads));
+    }
+
+    public static long findMinRoadsFast(int[] packages, RoadTree tree) {
+        int n = tree.n;
+        int[] degree = new int[n];
+        boolean[] removed = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        long roadsLeft = Math.max(0, n - 1);
+
+        for (int v = 0; v < n; v++) {
+            degree[v] = tree.degree(v);
+            if (degree[v] == 1 && packages[v] == 0) queue[tail++] = v;
+        }
+
+        // Trim leaves without a package until every leaf has one
+        while (head < tail) {
+            int leaf = queue[head++];
+            removed[leaf] = true;
+            roadsLeft--;
+            for (int e = tree.offsets[leaf]; e < tree.offsets[leaf + 1]; e++) {
+                int neighbour = tree.adjacent[e];
+                if (!removed[neighbour] && --degree[neighbour] == 1 && packages[neighbour] == 0) {
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+
+        // Trim two layers of leaves: their packages are within reach of the next location inwards
+        head = tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (!removed[v] && degree[v] == 1) queue[tail++] = v;
+        }
+        for (int layer = 0; layer < 2; layer++) {
+            int layerEnd = tail;
+            while (head < layerEnd) {
+                int leaf = queue[head++];
+                removed[leaf] = true;
+                roadsLeft--;
+                for (int e = tree.offsets[leaf]; e < tree.offsets[leaf + 1]; e++) {
+                    int neighbour = tree.adjacent[e];
+                    if (!removed[neighbour] && --degree[neighbour] == 1) queue[tail++] = neighbour;
+                }
+            }
+        }
+
+        return 2 * Math.max(0, roadsLeft);
     }
 
     // Method to find the minimum number of roads to traverse
@@ -128,4 +471,7 @@ public class Question4b {
 
 // Output
 // Minimum number of roads to traverse for Input 1: 2
-// Minimum number of roads to traverse for Input 2: 3
\ No newline at end of file
+// Minimum number of roads to traverse for Input 2: 3
+// Minimum number of roads (linear solver) for Input 1: 2
+// Minimum number of roads (linear solver) for Input 2: 2
+// Delivery rounds on the roads of Input 2: [2, 0, 2, 0, 0]
\ No newline at end of file
@@ -1,6 +1,16 @@
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.swing.*;
 
 
@@ -9,6 +19,21 @@ public class Question5 extends JFrame {
     private final Map<String, Node> nodes; // Stores the nodes
     private final List<Edge> edges; // Stores the edges
     private final JPanel canvas; // Canvas to draw nodes and edges
+    private final JButton cancelButton = new JButton("Cancel");
+
+    // Optimization runs on this thread, never on the EDT; results are highlighted on the canvas
+    private final ExecutorService optimizer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "network-optimizer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> optimization;
+    private long currentJob; // number of the last job started; a posted update for any other is stale
+    private boolean jobRunning; // the current job has not finished or been cancelled
+    private final Set<Edge> highlightedNetwork = new HashSet<>();
+    private final Set<Edge> highlightedPath = new HashSet<>();
+    private final Router router = new Router(1024, 16); // cached lowest-cost routes
+    private long graphVersion; // bumped whenever nodes, edges, positions or highlights change
 
     public Question5() {
         nodes = new HashMap<>();
@@ -24,7 +49,7 @@ public class Question5 extends JFrame {
 
         // Panel for controls
         JPanel controlPanel = new JPanel();
-        controlPanel.setLayout(new GridLayout(1, 3));
+        controlPanel.setLayout(new GridLayout(1, 6));
 
         JButton addNodeButton = new JButton("Add Node");
         addNodeButton.addActionListener(e -> addNode());
@@ -38,70 +63,1468 @@ public class Question5 extends JFrame {
         optimizeButton.addActionListener(e -> optimizeNetwork());
         controlPanel.add(optimizeButton);
 
+        JButton routeButton = new JButton("Shortest Path");
+        routeButton.addActionListener(e -> showShortestPath());
+        controlPanel.add(routeButton);
+
+        JButton layoutButton = new JButton("Layout");
+        layoutButton.addActionListener(e -> layoutNetwork());
+        controlPanel.add(layoutButton);
+
+        cancelButton.addActionListener(e -> cancelOptimization());
+        cancelButton.setEnabled(false);
+        controlPanel.add(cancelButton);
+
         add(controlPanel, BorderLayout.SOUTH);
     }
 
+    // Asks for a node name. Every name is trimmed here, before it reaches nodes, edges, the router
+    // or a lookup, so " A" and "A" are the same node. Null if cancelled or blank.
+    private String askNodeName(String prompt) {
+        String name = JOptionPane.showInputDialog(this, prompt);
+        if (name == null) return null;
+        name = name.trim();
+        return name.isEmpty() ? null : name;
+    }
+
     // Adds a new node to the graph
     private void addNode() {
-        String nodeName = JOptionPane.showInputDialog(this, "Enter Node Name:");
-        if (nodeName != null && !nodeName.trim().isEmpty()) {
-            Node newNode = new Node(nodeName, new Point(100, 100)); // Default position
+        String nodeName = askNodeName("Enter Node Name:");
+        if (nodeName != null) {
+            Node newNode = new Node(nodeName, freePosition(nodes.size()));
             nodes.put(nodeName, newNode);
-            canvas.repaint();
+            view().addNode(newNode);
+            if (router.idOf(nodeName) < 0) {
+                // Edges entered before this node existed become routable now
+                router.addNode(nodeName);
+                for (Edge edge : edges) {
+                    if (edge.nodeA.equals(nodeName) || edge.nodeB.equals(nodeName)) addRoute(edge);
+                }
+            }
+            graphChanged();
         }
     }
 
     // Adds an edge between two nodes
     private void addEdge() {
-        String nodeA = JOptionPane.showInputDialog(this, "Enter the first node:");
-        String nodeB = JOptionPane.showInputDialog(this, "Enter the second node:");
-        if (nodeA != null && nodeB != null && !nodeA.trim().isEmpty() && !nodeB.trim().isEmpty()) {
+        String nodeA = askNodeName("Enter the first node:");
+        String nodeB = nodeA == null ? null : askNodeName("Enter the second node:");
+        if (nodeA != null && nodeB != null) {
             int cost = Integer.parseInt(JOptionPane.showInputDialog(this, "Enter the cost of this connection:"));
             int bandwidth = Integer.parseInt(JOptionPane.showInputDialog(this, "Enter the bandwidth of this connection:"));
+            if (cost < 0) {
+                JOptionPane.showMessageDialog(this, "The cost cannot be negative", "Add Edge", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             Edge newEdge = new Edge(nodeA, nodeB, cost, bandwidth);
             edges.add(newEdge);
-            canvas.repaint();
+            view().addEdge(newEdge);
+            addRoute(newEdge);
+            graphChanged();
+        }
+    }
+
+    // Something drawn on the canvas changed: the cached layer must be redrawn
+    private void graphChanged() {
+        graphVersion++;
+        canvas.repaint();
+    }
+
+    // The highlighted sets changed: restyle their edges in the view and redraw
+    private void highlightsChanged() {
+        view().setHighlights(highlightedNetwork, highlightedPath);
+        graphChanged();
+    }
+
+    private TopologyView view() {
+        return ((CanvasPanel) canvas).view();
+    }
+
+    // Spreads new nodes on a spiral around the middle of the view instead of stacking them
+    private Point freePosition(int index) {
+        Point center = ((CanvasPanel) canvas).viewCenter();
+        double radius = 60 * Math.sqrt(index), angle = index * 2.399963; // golden angle
+        return new Point(center.x + (int) (radius * Math.cos(angle)), center.y + (int) (radius * Math.sin(angle)));
+    }
+
+    // Adds count generated nodes, each linked to one or two earlier ones (the "large" demo)
+    void addGeneratedTopology(int count, long seed) {
+        int first = nodes.size();
+        List<Edge> added = new ArrayList<>();
+        generateTopology(first, count, seed, nodes, added);
+        for (int i = first; i < first + count; i++) {
+            router.addNode("N" + i);
+            view().addNode(nodes.get("N" + i));
         }
+        for (Edge edge : added) {
+            edges.add(edge);
+            view().addEdge(edge);
+            addRoute(edge);
+        }
+        graphChanged();
+    }
+
+    // Nodes N<first>.. on a jittered grid, each linked to its left neighbour and, half the time,
+    // the one above, with random cost and bandwidth
+    static void generateTopology(int first, int count, long seed, Map<String, Node> nodes, List<Edge> edges) {
+        Random random = new Random(seed);
+        int side = (int) Math.ceil(Math.sqrt(count));
+        for (int i = 0; i < count; i++) {
+            int row = i / side, column = i % side;
+            String name = "N" + (first + i);
+            nodes.put(name, new Node(name, new Point(column * 80 + random.nextInt(40), row * 80 + random.nextInt(40))));
+            if (column > 0) {
+                edges.add(new Edge(name, "N" + (first + i - 1), 1 + random.nextInt(100), 10 * (1 + random.nextInt(100))));
+            }
+            if (row > 0 && random.nextBoolean()) {
+                edges.add(new Edge(name, "N" + (first + i - side), 1 + random.nextInt(100), 10 * (1 + random.nextInt(100))));
+            }
+        }
+    }
+
+    // Runs the force-directed layout on the optimizer thread, showing progress every few steps.
+    // It is a job like an optimization, so Cancel and stale updates are handled the same way.
+    private void layoutNetwork() {
+        if (jobRunning) return;
+        TopologyView view = view();
+        ForceLayout layout = new ForceLayout(view);
+        long job = startJob();
+        optimization = optimizer.submit(() -> {
+            try {
+                int steps = 200;
+                for (int step = 0; step < steps; step++) {
+                    if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+                    layout.step(1 - (double) step / steps);
+                    if (step % 10 == 9 || step == steps - 1) {
+                        float[] x = layout.x.clone(), y = layout.y.clone();
+                        postForJob(job, () -> {
+                            for (int i = 0; i < x.length; i++) view.nodes[i].position.setLocation(x[i], y[i]);
+                            view.positionsChanged();
+                            graphChanged();
+                        });
+                    }
+                }
+            } catch (CancellationException e) {
+                // Positions published so far stay
+            } finally {
+                finishJob(job);
+            }
+        });
     }
 
-    // Optimize the network using MST (Prim's or Kruskal's) and Shortest Path
+    // Tells the router about an edge once both of its nodes exist
+    private void addRoute(Edge edge) {
+        int a = router.idOf(edge.nodeA), b = router.idOf(edge.nodeB);
+        if (a >= 0 && b >= 0) router.addEdge(a, b, edge.cost);
+    }
+
+    // Asks for two nodes and highlights the lowest-cost path between them
+    private void showShortestPath() {
+        String nodeA = askNodeName("Path from node:");
+        String nodeB = nodeA == null ? null : askNodeName("Path to node:");
+        if (nodeA == null || nodeB == null) return;
+        int source = router.idOf(nodeA), target = router.idOf(nodeB);
+        if (source < 0 || target < 0) {
+            JOptionPane.showMessageDialog(this, "Unknown node", "Shortest Path", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Router.Route route = router.route(source, target);
+        highlightedPath.clear();
+        if (route.nodes == null) {
+            JOptionPane.showMessageDialog(this, "No path between " + nodeA + " and " + nodeB);
+        } else {
+            // Highlight the cheapest edge between each pair of consecutive nodes
+            for (int i = 1; i < route.nodes.length; i++) {
+                String a = router.name(route.nodes[i - 1]), b = router.name(route.nodes[i]);
+                Edge cheapest = null;
+                for (Edge edge : edges) {
+                    boolean joins = edge.nodeA.equals(a) && edge.nodeB.equals(b) || edge.nodeA.equals(b) && edge.nodeB.equals(a);
+                    if (joins && (cheapest == null || edge.cost < cheapest.cost)) cheapest = edge;
+                }
+                if (cheapest != null) highlightedPath.add(cheapest);
+            }
+            JOptionPane.showMessageDialog(this, "Lowest cost from " + nodeA + " to " + nodeB + ": " + route.cost
+                    + " over " + (route.nodes.length - 1) + " links");
+        }
+        highlightsChanged();
+    }
+
+    // Optimize the network: the cheapest links that connect every node using only links with at
+    // least the requested bandwidth, and the path between two nodes with the highest bandwidth.
+    // The graph is copied on the EDT and solved on the optimizer thread; each result is
+    // highlighted as soon as it is ready, and Cancel interrupts the run.
     private void optimizeNetwork() {
-        // Call algorithm to optimize cost and latency here, e.g., Prim's MST
-        // For simplicity, we'll just show a placeholder message for now.
-        JOptionPane.showMessageDialog(this, "Network optimization algorithms applied!", "Optimization Complete", JOptionPane.INFORMATION_MESSAGE);
+        if (jobRunning) return;
+        String minimum = JOptionPane.showInputDialog(this, "Minimum bandwidth per link:", "0");
+        if (minimum == null) return;
+        int minBandwidth = Integer.parseInt(minimum.trim());
+        String source = askNodeName("Widest path from node (empty to skip):");
+        String target = source == null ? null : askNodeName("Widest path to node:");
+
+        NetworkGraph graph = new NetworkGraph(nodes.values(), edges);
+        int from = source == null ? -1 : graph.indexOf(source);
+        int to = target == null ? -1 : graph.indexOf(target);
+        highlightedNetwork.clear();
+        highlightedPath.clear();
+        highlightsChanged();
+        long job = startJob();
+
+        optimization = optimizer.submit(() -> {
+            try {
+                NetworkGraph.SpanningNetwork network = graph.minimumCostNetwork(minBandwidth);
+                postForJob(job, () -> {
+                    for (int edge : network.edges) highlightedNetwork.add(graph.edge(edge));
+                    highlightsChanged();
+                });
+
+                StringBuilder report = new StringBuilder();
+                report.append("Minimum-cost network: cost ").append(network.cost).append(" over ")
+                        .append(network.edges.length).append(" links with bandwidth >= ").append(minBandwidth);
+                if (network.components > 1) {
+                    report.append("\n(").append(network.components).append(" separate parts: not every node can be connected)");
+                }
+
+                if (from >= 0 && to >= 0) {
+                    NetworkGraph.WidestPath path = graph.maxBandwidthPath(from, to);
+                    report.append("\n");
+                    if (path.edges == null) {
+                        report.append("No path between ").append(source).append(" and ").append(target);
+                    } else {
+                        report.append("Widest path ").append(source).append(" -> ").append(target)
+                                .append(": bandwidth ").append(path.bandwidth).append(" over ")
+                                .append(path.edges.length).append(" links");
+                        postForJob(job, () -> {
+                            for (int edge : path.edges) highlightedPath.add(graph.edge(edge));
+                            highlightsChanged();
+                        });
+                    }
+                } else if (source != null) {
+                    report.append("\nUnknown node for the widest path");
+                }
+
+                postForJob(job, () -> JOptionPane.showMessageDialog(this, report.toString(),
+                        "Optimization Complete", JOptionPane.INFORMATION_MESSAGE));
+            } catch (CancellationException e) {
+                // Cancel has already reset the controls
+            } finally {
+                finishJob(job);
+            }
+        });
     }
 
-    // CanvasPanel: Custom panel to draw nodes and edges
-    class CanvasPanel extends JPanel {
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            drawNodes(g);
-            drawEdges(g);
+    // Begins a new job on the EDT and returns its number; updates from earlier jobs are dropped from now on
+    private long startJob() {
+        jobRunning = true;
+        cancelButton.setEnabled(true);
+        return ++currentJob;
+    }
+
+    // Runs update on the EDT if job is still the current one, so a cancelled or replaced run never
+    // touches the highlights, dialogs or Cancel button of the next. Called from the optimizer
+    // thread, which stops posting once Cancel has interrupted it.
+    private void postForJob(long job, Runnable update) {
+        if (Thread.currentThread().isInterrupted()) return;
+        SwingUtilities.invokeLater(() -> {
+            if (job == currentJob) update.run();
+        });
+    }
+
+    // Called by a job when it ends, on the optimizer thread
+    private void finishJob(long job) {
+        postForJob(job, () -> {
+            jobRunning = false;
+            cancelButton.setEnabled(false);
+        });
+    }
+
+    // Interrupts the running job; results already highlighted stay on the canvas
+    private void cancelOptimization() {
+        if (optimization != null) optimization.cancel(true);
+        currentJob++; // anything the cancelled run still posts is now stale
+        jobRunning = false;
+        cancelButton.setEnabled(false);
+    }
+
+    // Immutable int-indexed copy of the topology: node i is names[i], edge e joins from[e] and to[e],
+    // and the edges at node v are incident[offsets[v]] .. incident[offsets[v + 1] - 1] (CSR).
+    // Edges naming an unknown node are left out.
+    static class NetworkGraph {
+        final String[] names;
+        final int[] from, to, cost, bandwidth;
+        final int[] offsets, incident;
+        private final Edge[] sourceEdges;
+        private final Map<String, Integer> indexByName = new HashMap<>();
+
+        NetworkGraph(Collection<Node> nodes, List<Edge> edges) {
+            names = new String[nodes.size()];
+            int count = 0;
+            for (Node node : nodes) {
+                indexByName.put(node.name, count);
+                names[count++] = node.name;
+            }
+
+            int[] a = new int[edges.size()], b = new int[edges.size()];
+            Edge[] kept = new Edge[edges.size()];
+            int m = 0;
+            for (Edge edge : edges) {
+                Integer u = indexByName.get(edge.nodeA), v = indexByName.get(edge.nodeB);
+                if (u == null || v == null) continue;
+                a[m] = u;
+                b[m] = v;
+                kept[m++] = edge;
+            }
+            from = Arrays.copyOf(a, m);
+            to = Arrays.copyOf(b, m);
+            sourceEdges = Arrays.copyOf(kept, m);
+            cost = new int[m];
+            bandwidth = new int[m];
+            for (int e = 0; e < m; e++) {
+                cost[e] = sourceEdges[e].cost;
+                bandwidth[e] = sourceEdges[e].bandwidth;
+            }
+
+            offsets = new int[names.length + 1];
+            for (int e = 0; e < m; e++) {
+                offsets[from[e] + 1]++;
+                offsets[to[e] + 1]++;
+            }
+            for (int v = 0; v < names.length; v++) offsets[v + 1] += offsets[v];
+            incident = new int[2 * m];
+            int[] next = Arrays.copyOf(offsets, names.length);
+            for (int e = 0; e < m; e++) {
+                incident[next[from[e]]++] = e;
+                incident[next[to[e]]++] = e;
+            }
+        }
+
+        int nodeCount() {
+            return names.length;
+        }
+
+        int edgeCount() {
+            return from.length;
+        }
+
+        // Index of the named node, or -1
+        int indexOf(String name) {
+            return indexByName.getOrDefault(name, -1);
+        }
+
+        Edge edge(int e) {
+            return sourceEdges[e];
+        }
+
+        int other(int e, int v) {
+            return from[e] == v ? to[e] : from[e];
+        }
+
+        static class SpanningNetwork {
+            final int[] edges; // edge indices of the chosen links
+            final long cost;
+            final int components; // 1 when every node is connected
+
+            SpanningNetwork(int[] edges, long cost, int components) {
+                this.edges = edges;
+                this.cost = cost;
+                this.components = components;
+            }
+        }
+
+        static class WidestPath {
+            final int[] edges; // edge indices from source to target, or null if unreachable
+            final int bandwidth; // smallest bandwidth along the path
+
+            WidestPath(int[] edges, int bandwidth) {
+                this.edges = edges;
+                this.bandwidth = bandwidth;
+            }
+        }
+
+        // Kruskal over the links with bandwidth >= minBandwidth, cheapest first. When those links do
+        // not connect every node, the result is a minimum-cost spanning forest.
+        SpanningNetwork minimumCostNetwork(int minBandwidth) {
+            int[] order = edgesWhere(e -> bandwidth[e] >= minBandwidth);
+            sortBy(order, cost, false);
+            int[] parent = newForest();
+            int[] chosen = new int[Math.max(0, names.length - 1)];
+            int count = 0;
+            long total = 0;
+            for (int i = 0; i < order.length && count < chosen.length; i++) {
+                checkCancelled(i);
+                int e = order[i];
+                if (union(parent, from[e], to[e])) {
+                    chosen[count++] = e;
+                    total += cost[e];
+                }
+            }
+            return new SpanningNetwork(Arrays.copyOf(chosen, count), total, names.length - count);
+        }
+
+        // The path whose narrowest link is as wide as possible. Links are added widest first until
+        // source and target are connected; the last one added is the bottleneck, and the path is
+        // the unique one through the forest built so far.
+        WidestPath maxBandwidthPath(int source, int target) {
+            if (source == target) return new WidestPath(new int[0], Integer.MAX_VALUE);
+            int[] order = edgesWhere(e -> true);
+            sortBy(order, bandwidth, true);
+            int[] parent = newForest();
+            int[] forestOffsets = new int[names.length + 1];
+            int[] forest = new int[order.length];
+            int added = 0;
+            for (int i = 0; i < order.length && find(parent, source) != find(parent, target); i++) {
+                checkCancelled(i);
+                if (union(parent, from[order[i]], to[order[i]])) forest[added++] = order[i];
+            }
+            if (find(parent, source) != find(parent, target)) return new WidestPath(null, 0);
+
+            // Walk the forest from source, remembering the edge used to reach each node
+            int[] reachedBy = new int[names.length];
+            Arrays.fill(reachedBy, -1);
+            int[] forestEdges = new int[2 * added];
+            for (int i = 0; i < added; i++) {
+                forestOffsets[from[forest[i]] + 1]++;
+                forestOffsets[to[forest[i]] + 1]++;
+            }
+            for (int v = 0; v < names.length; v++) forestOffsets[v + 1] += forestOffsets[v];
+            int[] next = Arrays.copyOf(forestOffsets, names.length);
+            for (int i = 0; i < added; i++) {
+                forestEdges[next[from[forest[i]]]++] = forest[i];
+                forestEdges[next[to[forest[i]]]++] = forest[i];
+            }
+            int[] stack = new int[names.length];
+            int top = 0;
+            stack[top++] = source;
+            reachedBy[source] = Integer.MAX_VALUE;
+            while (top > 0 && reachedBy[target] < 0) {
+                int v = stack[--top];
+                for (int i = forestOffsets[v]; i < forestOffsets[v + 1]; i++) {
+                    int e = forestEdges[i], w = other(e, v);
+                    if (reachedBy[w] < 0) {
+                        reachedBy[w] = e;
+                        stack[top++] = w;
+                    }
+                }
+            }
+
+            int[] path = new int[names.length];
+            int length = 0, narrowest = Integer.MAX_VALUE;
+            for (int v = target; v != source; v = other(reachedBy[v], v)) {
+                path[length++] = reachedBy[v];
+                narrowest = Math.min(narrowest, bandwidth[reachedBy[v]]);
+            }
+            int[] edges = new int[length];
+            for (int i = 0; i < length; i++) edges[i] = path[length - 1 - i];
+            return new WidestPath(edges, narrowest);
+        }
+
+        private int[] edgesWhere(java.util.function.IntPredicate keep) {
+            int[] selected = new int[from.length];
+            int count = 0;
+            for (int e = 0; e < from.length; e++) {
+                if (keep.test(e)) selected[count++] = e;
+            }
+            return Arrays.copyOf(selected, count);
+        }
+
+        // Sorts edge indices by key; ties keep index order
+        private static void sortBy(int[] order, int[] key, boolean descending) {
+            long[] packed = new long[order.length];
+            for (int i = 0; i < order.length; i++) {
+                int k = descending ? ~key[order[i]] : key[order[i]]; // ~ reverses the int order
+                packed[i] = ((long) k - Integer.MIN_VALUE) << 31 | order[i];
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < order.length; i++) order[i] = (int) (packed[i] & Integer.MAX_VALUE);
+        }
+
+        private int[] newForest() {
+            int[] parent = new int[names.length];
+            for (int v = 0; v < parent.length; v++) parent[v] = v;
+            return parent;
+        }
+
+        private static int find(int[] parent, int v) {
+            while (parent[v] != v) {
+                parent[v] = parent[parent[v]];
+                v = parent[v];
+            }
+            return v;
+        }
+
+        private static boolean union(int[] parent, int u, int v) {
+            int ru = find(parent, u), rv = find(parent, v);
+            if (ru == rv) return false;
+            parent[ru] = rv;
+            return true;
+        }
+
+        // Lets Cancel stop a long run: checked every 1024 steps
+        private static void checkCancelled(int step) {
+            if ((step & 1023) == 0 && Thread.currentThread().isInterrupted()) throw new CancellationException();
+        }
+    }
+
+    // Lowest-cost routes over an undirected graph with non-negative costs.
+    // Edges live in a CSR (offsets/targets/weights) plus forward-star lists for edges added since
+    // the last compaction, so adding an edge never rebuilds the whole graph. Dijkstra runs on a
+    // 4-ary indexed heap. Two LRU caches sit in front: routes by (source, target) and whole
+    // shortest-path trees by source. Adding an edge can only shorten distances, so cached trees
+    // are repaired from the new edge, touching only nodes that got closer, and a cached route
+    // is dropped only if its target got closer (or its tree is no longer cached to tell).
+    static class Router {
+        static final long UNREACHABLE = Long.MAX_VALUE;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private int nodeCount;
+        private int[] offsets = {0}, targets = new int[0], weights = new int[0];
+        private int[] extraHead = new int[16]; // first added edge of each node, or -1
+        private int[] extraNext = new int[16], extraTarget = new int[16], extraWeight = new int[16];
+        private int extraCount;
+        private final LinkedHashMap<Long, Route> routes;
+        private final LinkedHashMap<Integer, ShortestPathTree> trees;
+        private final QuaternaryHeap heap = new QuaternaryHeap();
+        private int update; // number of addEdge calls, stamps the nodes each one moved closer
+        long routeHits, treeHits, misses;
+
+        Router(int routeCapacity, int treeCapacity) {
+            routes = lru(routeCapacity);
+            trees = lru(treeCapacity);
+            Arrays.fill(extraHead, -1);
+        }
+
+        // A router over nodes 0..nodeCount-1 with edges from[i] - to[i] of the given costs
+        Router(int nodeCount, int[] from, int[] to, int[] cost, int routeCapacity, int treeCapacity) {
+            this(routeCapacity, treeCapacity);
+            ensureNodes(nodeCount);
+            this.nodeCount = nodeCount;
+            for (int i = 0; i < from.length; i++) addExtra(from[i], to[i], cost[i]);
+            compact();
+        }
+
+        private static <K, V> LinkedHashMap<K, V> lru(int capacity) {
+            return new LinkedHashMap<K, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        // Id of the named node, or -1
+        int idOf(String name) {
+            return ids.getOrDefault(name, -1);
+        }
+
+        String name(int id) {
+            return id < names.size() && names.get(id) != null ? names.get(id) : "#" + id;
+        }
+
+        int addNode(String name) {
+            Integer existing = ids.get(name);
+            if (existing != null) return existing;
+            ensureNodes(nodeCount + 1);
+            while (names.size() < nodeCount) names.add(null);
+            names.add(name);
+            ids.put(name, nodeCount);
+            return nodeCount++;
+        }
+
+        // Adds an undirected edge and updates the caches
+        void addEdge(int u, int v, int cost) {
+            if (cost < 0) throw new IllegalArgumentException("Negative cost " + cost);
+            if (u < 0 || u >= nodeCount || v < 0 || v >= nodeCount) throw new IllegalArgumentException("Unknown node");
+            addExtra(u, v, cost);
+            update++;
+
+            Map<Integer, ShortestPathTree> repaired = new HashMap<>(); // read without reordering the LRU
+            for (Map.Entry<Integer, ShortestPathTree> entry : trees.entrySet()) {
+                ShortestPathTree tree = entry.getValue();
+                tree.ensureNodes(nodeCount);
+                boolean moved = relax(tree, u, v, cost);
+                moved |= relax(tree, v, u, cost);
+                if (moved) settle(tree);
+                repaired.put(entry.getKey(), tree);
+            }
+            routes.values().removeIf(route -> {
+                ShortestPathTree tree = repaired.get(route.source);
+                return tree == null || tree.changedAt[route.target] == update;
+            });
+            if (extraCount > targets.length / 4 + 1024) compact();
+        }
+
+        // Lowest-cost route from source to target
+        Route route(int source, int target) {
+            long key = (long) source << 32 | target;
+            Route route = routes.get(key);
+            if (route != null) {
+                routeHits++;
+                return route;
+            }
+            route = tree(source).routeTo(source, target);
+            routes.put(key, route);
+            return route;
+        }
+
+        // Distances and parents from source to every node, computed once and cached
+        ShortestPathTree tree(int source) {
+            ShortestPathTree tree = trees.get(source);
+            if (tree != null) {
+                treeHits++;
+                tree.ensureNodes(nodeCount);
+                return tree;
+            }
+            misses++;
+            tree = computeTree(source);
+            trees.put(source, tree);
+            return tree;
+        }
+
+        // Full Dijkstra from source, without the cache
+        ShortestPathTree computeTree(int source) {
+            ShortestPathTree tree = new ShortestPathTree(nodeCount);
+            tree.distance[source] = 0;
+            heap.reset(tree.distance, nodeCount);
+            heap.push(source);
+            settle(tree);
+            return tree;
+        }
+
+        // Offers the path through edge from -> to; true if it brought to closer
+        private boolean relax(ShortestPathTree tree, int from, int to, int cost) {
+            if (tree.distance[from] == UNREACHABLE || tree.distance[from] + cost >= tree.distance[to]) return false;
+            heap.reset(tree.distance, nodeCount);
+            tree.distance[to] = tree.distance[from] + cost;
+            tree.parent[to] = from;
+            tree.changedAt[to] = update;
+            heap.pushOrDecrease(to);
+            return true;
+        }
+
+        // Dijkstra from whatever is in the heap, relaxing only strict improvements
+        private void settle(ShortestPathTree tree) {
+            long[] distance = tree.distance;
+            while (!heap.isEmpty()) {
+                int v = heap.pop();
+                long base = distance[v];
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    improve(tree, v, targets[e], base + weights[e]);
+                }
+                for (int e = extraHead[v]; e >= 0; e = extraNext[e]) {
+                    improve(tree, v, extraTarget[e], base + extraWeight[e]);
+                }
+            }
+        }
+
+        private void improve(ShortestPathTree tree, int from, int to, long distance) {
+            if (distance < tree.distance[to]) {
+                tree.distance[to] = distance;
+                tree.parent[to] = from;
+                tree.changedAt[to] = update;
+                heap.pushOrDecrease(to);
+            }
+        }
+
+        private void addExtra(int u, int v, int cost) {
+            if (extraCount + 2 > extraNext.length) {
+                int capacity = extraNext.length * 2;
+                extraNext = Arrays.copyOf(extraNext, capacity);
+                extraTarget = Arrays.copyOf(extraTarget, capacity);
+                extraWeight = Arrays.copyOf(extraWeight, capacity);
+            }
+            extraTarget[extraCount] = v;
+            extraWeight[extraCount] = cost;
+            extraNext[extraCount] = extraHead[u];
+            extraHead[u] = extraCount++;
+            extraTarget[extraCount] = u;
+            extraWeight[extraCount] = cost;
+            extraNext[extraCount] = extraHead[v];
+            extraHead[v] = extraCount++;
         }
 
-        // Draw nodes on the canvas
-        private void drawNodes(Graphics g) {
-            for (Node node : nodes.values()) {
+        // Merges the added edges into a new CSR
+        private void compact() {
+            int[] newOffsets = new int[nodeCount + 1];
+            for (int v = 0; v < nodeCount; v++) {
+                int degree = v + 1 < offsets.length ? offsets[v + 1] - offsets[v] : 0;
+                for (int e = extraHead[v]; e >= 0; e = extraNext[e]) degree++;
+                newOffsets[v + 1] = newOffsets[v] + degree;
+            }
+            int[] newTargets = new int[newOffsets[nodeCount]], newWeights = new int[newTargets.length];
+            for (int v = 0; v < nodeCount; v++) {
+                int at = newOffsets[v];
+                if (v + 1 < offsets.length) {
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        newTargets[at] = targets[e];
+                        newWeights[at++] = weights[e];
+                    }
+                }
+                for (int e = extraHead[v]; e >= 0; e = extraNext[e]) {
+                    newTargets[at] = extraTarget[e];
+                    newWeights[at++] = extraWeight[e];
+                }
+                extraHead[v] = -1;
+            }
+            offsets = newOffsets;
+            targets = newTargets;
+            weights = newWeights;
+            extraCount = 0;
+        }
+
+        private void ensureNodes(int count) {
+            if (count > extraHead.length) {
+                int old = extraHead.length;
+                extraHead = Arrays.copyOf(extraHead, Math.max(count, old * 2));
+                Arrays.fill(extraHead, old, extraHead.length, -1);
+            }
+            if (count + 1 > offsets.length) {
+                int old = offsets.length;
+                offsets = Arrays.copyOf(offsets, Math.max(count + 1, old * 2));
+                Arrays.fill(offsets, old, offsets.length, offsets[old - 1]); // new nodes have no CSR edges
+            }
+        }
+
+        static class Route {
+            final int source, target;
+            final long cost; // UNREACHABLE if there is no path
+            final int[] nodes; // source .. target, or null if there is no path
+
+            Route(int source, int target, long cost, int[] nodes) {
+                this.source = source;
+                this.target = target;
+                this.cost = cost;
+                this.nodes = nodes;
+            }
+        }
+
+        static class ShortestPathTree {
+            long[] distance;
+            int[] parent, changedAt;
+
+            ShortestPathTree(int nodeCount) {
+                distance = new long[nodeCount];
+                parent = new int[nodeCount];
+                changedAt = new int[nodeCount];
+                Arrays.fill(distance, UNREACHABLE);
+                Arrays.fill(parent, -1);
+            }
+
+            // Nodes added after the tree was built are unreachable until an edge reaches them
+            void ensureNodes(int nodeCount) {
+                int old = distance.length;
+                if (nodeCount <= old) return;
+                int capacity = Math.max(nodeCount, old * 2);
+                distance = Arrays.copyOf(distance, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                changedAt = Arrays.copyOf(changedAt, capacity);
+                Arrays.fill(distance, old, capacity, UNREACHABLE);
+                Arrays.fill(parent, old, capacity, -1);
+            }
+
+            Route routeTo(int source, int target) {
+                if (distance[target] == UNREACHABLE) return new Route(source, target, UNREACHABLE, null);
+                int length = 1;
+                for (int v = target; v != source; v = parent[v]) length++;
+                int[] nodes = new int[length];
+                for (int v = target, i = length - 1; i >= 0; v = parent[v], i--) nodes[i] = v;
+                return new Route(source, target, distance[target], nodes);
+            }
+        }
+
+        // Min-heap of node ids keyed by a distance array, with four children per node: half the
+        // depth of a binary heap, and a node's children share a cache line. position[v] finds v
+        // in the heap for decrease-key; it is -1 for nodes not in the heap.
+        static class QuaternaryHeap {
+            private int[] heap = new int[16], position = new int[0];
+            private long[] key;
+            private int size;
+
+            void reset(long[] key, int nodeCount) {
+                this.key = key;
+                if (position.length < nodeCount) {
+                    int old = position.length;
+                    position = Arrays.copyOf(position, Math.max(nodeCount, old * 2));
+                    Arrays.fill(position, old, position.length, -1);
+                }
+            }
+
+            boolean isEmpty() {
+                return size == 0;
+            }
+
+            void push(int v) {
+                pushOrDecrease(v);
+            }
+
+            // Inserts v, or moves it up after its key decreased
+            void pushOrDecrease(int v) {
+                int at = position[v];
+                if (at < 0) {
+                    if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+                    at = size++;
+                }
+                siftUp(v, at);
+            }
+
+            int pop() {
+                int top = heap[0];
+                position[top] = -1;
+                int last = heap[--size];
+                if (size > 0) siftDown(last, 0);
+                return top;
+            }
+
+            private void siftUp(int v, int at) {
+                long k = key[v];
+                while (at > 0) {
+                    int parent = (at - 1) >> 2;
+                    if (key[heap[parent]] <= k) break;
+                    heap[at] = heap[parent];
+                    position[heap[at]] = at;
+                    at = parent;
+                }
+                heap[at] = v;
+                position[v] = at;
+            }
+
+            private void siftDown(int v, int at) {
+                long k = key[v];
+                while (true) {
+                    int first = 4 * at + 1;
+                    if (first >= size) break;
+                    int best = first;
+                    int end = Math.min(first + 4, size);
+                    for (int c = first + 1; c < end; c++) {
+                        if (key[heap[c]] < key[heap[best]]) best = c;
+                    }
+                    if (key[heap[best]] >= k) break;
+                    heap[at] = heap[best];
+                    position[heap[at]] = at;
+                    at = best;
+                }
+                heap[at] = v;
+                position[v] = at;
+            }
+        }
+
+        // Random connected graph (a ring plus random chords, about 6 edges per node), then a mix of
+        // route queries from a few busy sources and occasional edge inserts. Compares the time per
+        // operation with running Dijkstra for every query.
+        static void benchmark(int nodeCount, int operations) {
+            Random random = new Random(24);
+            int edgeCount = 3 * nodeCount;
+            int[] from = new int[edgeCount], to = new int[edgeCount], cost = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                from[i] = i < nodeCount ? i : random.nextInt(nodeCount);
+                to[i] = i < nodeCount ? (i + 1) % nodeCount : random.nextInt(nodeCount);
+                cost[i] = 1 + random.nextInt(100);
+            }
+            Router router = new Router(nodeCount, from, to, cost, 4096, 16);
+            int[] sources = new int[12];
+            for (int i = 0; i < sources.length; i++) sources[i] = random.nextInt(nodeCount);
+
+            long start = System.nanoTime();
+            long checksum = 0;
+            int inserts = 0;
+            for (int op = 0; op < operations; op++) {
+                if (random.nextInt(100) < 2) {
+                    router.addEdge(random.nextInt(nodeCount), random.nextInt(nodeCount), 1 + random.nextInt(100));
+                    inserts++;
+                } else {
+                    int source = sources[Math.min(sources.length - 1, (int) Math.abs(random.nextGaussian() * 3))];
+                    int target = random.nextInt(200); // a set of popular destinations
+                    checksum += router.route(source, target).cost;
+                }
+            }
+            double cached = (System.nanoTime() - start) / 1e6 / operations;
+
+            // Uncached: one full Dijkstra per query
+            int samples = 5;
+            start = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                checksum += router.computeTree(sources[i]).distance[i];
+            }
+            double uncached = (System.nanoTime() - start) / 1e6 / samples;
+
+            System.out.printf("%,d nodes, %,d ops (%d inserts): %.3f ms/op cached, %.1f ms/query uncached; "
+                            + "route hits %d, tree hits %d, Dijkstra runs %d (checksum %d)%n",
+                    nodeCount, operations, inserts, cached, uncached,
+                    router.routeHits, router.treeHits, router.misses, checksum);
+        }
+    }
+
+    // Everything the canvas draws, copied into arrays: node i is at (x[i], y[i]) and edge e joins
+    // edgeA[e] and edgeB[e], so drawing needs no name lookups. Uniform grids over node positions
+    // and edge bounding boxes find what lies inside the viewport without looking at the rest.
+    // The view is kept up to date rather than rebuilt: added nodes and edges are appended, moved
+    // positions are copied in place and highlights only restyle the edges they touch. The grids
+    // are rebuilt once, before the next render, after nodes or edges were added or moved.
+    static class TopologyView {
+        static final int NODE_RADIUS = 15;
+        static final byte PLAIN = 0, NETWORK = 1, PATH = 2;
+        private static final Color NETWORK_COLOR = new Color(0, 160, 0);
+        private static final BasicStroke THIN = new BasicStroke(1), THICK = new BasicStroke(3);
+
+        Node[] nodes = new Node[16];
+        float[] x = new float[16], y = new float[16];
+        int nodeCount;
+        int[] edgeA = new int[16], edgeB = new int[16], edgeCost = new int[16], edgeBandwidth = new int[16];
+        byte[] edgeStyle = new byte[16];
+        int edgeCount;
+        private final Map<String, Integer> nodeIndex = new HashMap<>();
+        private final Map<Edge, Integer> edgeIndex = new HashMap<>(); // Edge keeps identity equality
+        private final List<Edge> waiting = new ArrayList<>(); // edges naming a node not added yet
+        private final IntList styled = new IntList(); // edges that are not PLAIN
+        private Set<Edge> network = Collections.emptySet(), path = Collections.emptySet(); // last highlights
+        private float[] edgeMinX = new float[0], edgeMinY = new float[0], edgeMaxX = new float[0], edgeMaxY = new float[0];
+        private SpatialGrid nodeGrid, edgeGrid; // null until rebuilt for the current positions
+        private final IntList visibleNodes = new IntList(), visibleEdges = new IntList();
+
+        TopologyView(Collection<Node> nodeList, List<Edge> edgeList, Set<Edge> network, Set<Edge> path) {
+            for (Node node : nodeList) addNode(node);
+            for (Edge edge : edgeList) addEdge(edge);
+            setHighlights(network, path);
+        }
+
+        // Adds node, or puts it in place of the node with the same name; edges that were waiting
+        // for a node of this name become drawable
+        void addNode(Node node) {
+            Integer existing = nodeIndex.get(node.name);
+            int v;
+            if (existing != null) {
+                v = existing;
+                nodeGrid = edgeGrid = null; // the node and its edges may have moved
+            } else {
+                if (nodeCount == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, nodeCount * 2);
+                    x = Arrays.copyOf(x, nodeCount * 2);
+                    y = Arrays.copyOf(y, nodeCount * 2);
+                    nodeGrid = edgeGrid = null; // they read the old arrays
+                }
+                v = nodeCount++;
+                nodeIndex.put(node.name, v);
+            }
+            nodes[v] = node;
+            x[v] = node.position.x;
+            y[v] = node.position.y;
+            if (nodeGrid != null && !nodeGrid.add(v)) nodeGrid = null;
+            if (existing == null && !waiting.isEmpty()) {
+                List<Edge> retry = new ArrayList<>(waiting);
+                waiting.clear();
+                for (Edge edge : retry) addEdge(edge);
+            }
+        }
+
+        // Adds edge as a plain line, or keeps it waiting until both of its nodes exist
+        void addEdge(Edge edge) {
+            if (edgeIndex.containsKey(edge) || waiting.contains(edge)) return;
+            Integer u = nodeIndex.get(edge.nodeA), v = nodeIndex.get(edge.nodeB);
+            if (u == null || v == null) {
+                waiting.add(edge);
+                return;
+            }
+            if (edgeCount == edgeA.length) {
+                int capacity = edgeCount * 2;
+                edgeA = Arrays.copyOf(edgeA, capacity);
+                edgeB = Arrays.copyOf(edgeB, capacity);
+                edgeCost = Arrays.copyOf(edgeCost, capacity);
+                edgeBandwidth = Arrays.copyOf(edgeBandwidth, capacity);
+                edgeStyle = Arrays.copyOf(edgeStyle, capacity);
+            }
+            int e = edgeCount++;
+            edgeA[e] = u;
+            edgeB[e] = v;
+            edgeCost[e] = edge.cost;
+            edgeBandwidth[e] = edge.bandwidth;
+            edgeStyle[e] = path.contains(edge) ? PATH : network.contains(edge) ? NETWORK : PLAIN;
+            if (edgeStyle[e] != PLAIN) styled.add(e);
+            edgeIndex.put(edge, e);
+            if (edgeGrid != null && e < edgeMinX.length) {
+                setEdgeBounds(e);
+                if (!edgeGrid.add(e)) edgeGrid = null;
+            } else {
+                edgeGrid = null;
+            }
+        }
+
+        // Copies every node's current position, after the nodes were moved
+        void positionsChanged() {
+            for (int v = 0; v < nodeCount; v++) {
+                x[v] = nodes[v].position.x;
+                y[v] = nodes[v].position.y;
+            }
+            nodeGrid = edgeGrid = null;
+        }
+
+        // Restyles only the edges highlighted before and now; a path edge wins over a network edge
+        // Edges added later are styled from the same sets
+        void setHighlights(Set<Edge> network, Set<Edge> path) {
+            this.network = network;
+            this.path = path;
+            for (int i = 0; i < styled.size; i++) edgeStyle[styled.values[i]] = PLAIN;
+            styled.size = 0;
+            highlight(network, NETWORK);
+            highlight(path, PATH);
+        }
+
+        private void highlight(Set<Edge> highlighted, byte style) {
+            for (Edge edge : highlighted) {
+                Integer e = edgeIndex.get(edge);
+                if (e == null) continue;
+                if (edgeStyle[e] == PLAIN) styled.add(e);
+                edgeStyle[e] = style;
+            }
+        }
+
+        private void buildGrids() {
+            if (nodeGrid == null) nodeGrid = new SpatialGrid(x, y, x, y, nodeCount);
+            if (edgeGrid == null) {
+                if (edgeMinX.length < edgeCount) {
+                    edgeMinX = new float[edgeA.length];
+                    edgeMinY = new float[edgeA.length];
+                    edgeMaxX = new float[edgeA.length];
+                    edgeMaxY = new float[edgeA.length];
+                }
+                for (int e = 0; e < edgeCount; e++) setEdgeBounds(e);
+                edgeGrid = new SpatialGrid(edgeMinX, edgeMinY, edgeMaxX, edgeMaxY, edgeCount);
+            }
+        }
+
+        private void setEdgeBounds(int e) {
+            edgeMinX[e] = Math.min(x[edgeA[e]], x[edgeB[e]]);
+            edgeMaxX[e] = Math.max(x[edgeA[e]], x[edgeB[e]]);
+            edgeMinY[e] = Math.min(y[edgeA[e]], y[edgeB[e]]);
+            edgeMaxY[e] = Math.max(y[edgeA[e]], y[edgeB[e]]);
+        }
+
+        // Draws the part of the world visible in a width x height image, where screen = (world - origin) * scale.
+        // Level of detail: labels only when zoomed in far enough for them to be readable and few
+        // enough to draw, and nodes as 2-pixel dots once a circle would be smaller than that.
+        // Returns the number of nodes and edges drawn.
+        int render(Graphics2D g, int width, int height, double scale, double originX, double originY) {
+            buildGrids();
+            double x0 = originX - NODE_RADIUS, y0 = originY - NODE_RADIUS;
+            double x1 = originX + width / scale + NODE_RADIUS, y1 = originY + height / scale + NODE_RADIUS;
+            edgeGrid.query(x0, y0, x1, y1, visibleEdges);
+            nodeGrid.query(x0, y0, x1, y1, visibleNodes);
+
+            boolean edgeLabels = scale >= 1 && visibleEdges.size <= 400;
+            for (int i = 0; i < visibleEdges.size; i++) {
+                int e = visibleEdges.values[i];
+                byte style = edgeStyle[e];
+                g.setColor(style == PATH ? Color.ORANGE : style == NETWORK ? NETWORK_COLOR : Color.BLACK);
+                g.setStroke(style == PLAIN ? THIN : THICK);
+                int ax = (int) ((x[edgeA[e]] - originX) * scale), ay = (int) ((y[edgeA[e]] - originY) * scale);
+                int bx = (int) ((x[edgeB[e]] - originX) * scale), by = (int) ((y[edgeB[e]] - originY) * scale);
+                g.drawLine(ax, ay, bx, by);
+                if (edgeLabels) {
+                    g.setColor(Color.RED);
+                    g.drawString("Cost: " + edgeCost[e] + " Bandwidth: " + edgeBandwidth[e], (ax + bx) / 2, (ay + by) / 2);
+                }
+            }
+            g.setStroke(THIN);
+
+            int radius = (int) Math.round(NODE_RADIUS * scale);
+            boolean nodeLabels = scale >= 0.6 && visibleNodes.size <= 2000;
+            for (int i = 0; i < visibleNodes.size; i++) {
+                int v = visibleNodes.values[i];
+                int sx = (int) ((x[v] - originX) * scale), sy = (int) ((y[v] - originY) * scale);
                 g.setColor(Color.BLUE);
-                g.fillOval(node.position.x - 15, node.position.y - 15, 30, 30);
+                if (radius < 2) {
+                    g.fillRect(sx - 1, sy - 1, 2, 2);
+                } else {
+                    g.fillOval(sx - radius, sy - radius, 2 * radius, 2 * radius);
+                }
+                if (nodeLabels) {
+                    g.setColor(Color.WHITE);
+                    g.drawString(nodes[v].name, sx - 10, sy + 5);
+                }
+            }
+            return visibleNodes.size + visibleEdges.size;
+        }
+    }
+
+    // Growable int array
+    static class IntList {
+        int[] values = new int[64];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+
+    // Uniform grid over item bounding boxes, stored CSR-style: cell c holds
+    // items[cellStart[c]] .. items[cellStart[c + 1] - 1]. The cell size gives about one item per
+    // cell. Items spanning many cells (long edges) are kept in one list that every query checks,
+    // and so are the few items added after the grid was built.
+    static class SpatialGrid {
+        private static final int MAX_CELLS_PER_ITEM = 16;
+        private final float[] minX, minY, maxX, maxY;
+        private final float originX, originY, cellSize;
+        private final int columns, rows;
+        private final int[] cellStart, items, wide;
+        private final IntList added = new IntList(); // items added after the build, checked like wide ones
+        private int[] stamp;
+        private int query;
+
+        // Items 0 .. n - 1 of the arrays, which the grid reads but does not copy
+        SpatialGrid(float[] minX, float[] minY, float[] maxX, float[] maxY, int n) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                left = Math.min(left, minX[i]);
+                top = Math.min(top, minY[i]);
+                right = Math.max(right, maxX[i]);
+                bottom = Math.max(bottom, maxY[i]);
+            }
+            if (n == 0) left = top = right = bottom = 0;
+            originX = left;
+            originY = top;
+            float side = Math.max(right - left, bottom - top);
+            cellSize = Math.max(1, side / (float) Math.max(1, Math.sqrt(n)));
+            columns = Math.min(4096, (int) ((right - left) / cellSize) + 1);
+            rows = Math.min(4096, (int) ((bottom - top) / cellSize) + 1);
+            stamp = new int[n];
+
+            // Count items per cell, then place them
+            cellStart = new int[columns * rows + 1];
+            IntList wideItems = new IntList();
+            for (int i = 0; i < n; i++) {
+                int c0 = column(minX[i]), c1 = column(maxX[i]), r0 = row(minY[i]), r1 = row(maxY[i]);
+                if ((c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS_PER_ITEM) {
+                    wideItems.add(i);
+                    continue;
+                }
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) cellStart[r * columns + c + 1]++;
+                }
+            }
+            for (int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+            items = new int[cellStart[columns * rows]];
+            int[] next = Arrays.copyOf(cellStart, columns * rows);
+            for (int i = 0; i < n; i++) {
+                int c0 = column(minX[i]), c1 = column(maxX[i]), r0 = row(minY[i]), r1 = row(maxY[i]);
+                if ((c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS_PER_ITEM) continue;
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) items[next[r * columns + c]++] = i;
+                }
+            }
+            wide = Arrays.copyOf(wideItems.values, wideItems.size);
+        }
+
+        // Replaces out with the items whose bounding box meets the rectangle, each once
+        void query(double x0, double y0, double x1, double y1, IntList out) {
+            out.size = 0;
+            if (++query == 0) {
+                Arrays.fill(stamp, 0);
+                query = 1;
+            }
+            if (x1 >= originX && y1 >= originY) {
+                int c0 = column(x0), c1 = column(x1), r0 = row(y0), r1 = row(y1);
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        for (int k = cellStart[r * columns + c]; k < cellStart[r * columns + c + 1]; k++) {
+                            int i = items[k];
+                            if (stamp[i] != query && overlaps(i, x0, y0, x1, y1)) {
+                                stamp[i] = query;
+                                out.add(i);
+                            }
+                        }
+                    }
+                }
+            }
+            for (int i : wide) {
+                if (overlaps(i, x0, y0, x1, y1)) out.add(i);
+            }
+            for (int k = 0; k < added.size; k++) {
+                int i = added.values[k];
+                if (overlaps(i, x0, y0, x1, y1)) out.add(i);
+            }
+        }
+
+        // Adds item i, already in the arrays, without rebuilding; false once enough items were
+        // added this way that every query would be slowed down, and the grid should be rebuilt
+        boolean add(int i) {
+            if (added.size >= Math.max(64, stamp.length / 8)) return false;
+            added.add(i);
+            return true;
+        }
+
+        private boolean overlaps(int i, double x0, double y0, double x1, double y1) {
+            return minX[i] <= x1 && maxX[i] >= x0 && minY[i] <= y1 && maxY[i] >= y0;
+        }
+
+        private int column(double x) {
+            return (int) Math.max(0, Math.min(columns - 1, (x - originX) / cellSize));
+        }
+
+        private int row(double y) {
+            return (int) Math.max(0, Math.min(rows - 1, (y - originY) / cellSize));
+        }
+    }
+
+    // Fruchterman-Reingold force-directed layout. Every node is pushed away from nodes in its own
+    // and the neighbouring grid cells (cells are twice the ideal edge length, so farther nodes
+    // are ignored) and pulled towards the nodes it is linked to. Each node only writes its own
+    // displacement, so a step runs in parallel over the nodes.
+    static class ForceLayout {
+        private static final float IDEAL_LENGTH = 80;
+        final float[] x, y;
+        private final float[] dx, dy;
+        private final int[] offsets, adjacent;
+        private final int n;
+        private int[] cellStart, cellNodes;
+        private float gridX, gridY;
+        private int columns, rows;
+
+        ForceLayout(TopologyView view) {
+            n = view.nodeCount;
+            x = Arrays.copyOf(view.x, n);
+            y = Arrays.copyOf(view.y, n);
+            dx = new float[n];
+            dy = new float[n];
+            offsets = new int[n + 1];
+            for (int e = 0; e < view.edgeCount; e++) {
+                offsets[view.edgeA[e] + 1]++;
+                offsets[view.edgeB[e] + 1]++;
+            }
+            for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+            adjacent = new int[2 * view.edgeCount];
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int e = 0; e < view.edgeCount; e++) {
+                adjacent[next[view.edgeA[e]]++] = view.edgeB[e];
+                adjacent[next[view.edgeB[e]]++] = view.edgeA[e];
+            }
+        }
+
+        // One step; heat in (0, 1] scales how far a node may move
+        void step(double heat) {
+            buildGrid();
+            IntStream.range(0, n).parallel().forEach(this::computeDisplacement);
+            float limit = (float) (IDEAL_LENGTH * heat);
+            for (int v = 0; v < n; v++) {
+                float length = (float) Math.sqrt(dx[v] * dx[v] + dy[v] * dy[v]);
+                if (length > 0) {
+                    float move = Math.min(length, limit) / length;
+                    x[v] += dx[v] * move;
+                    y[v] += dy[v] * move;
+                }
+            }
+        }
+
+        private void computeDisplacement(int v) {
+            float fx = 0, fy = 0, k2 = IDEAL_LENGTH * IDEAL_LENGTH;
+            int column = column(x[v]), row = row(y[v]);
+            for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+                    for (int k = cellStart[r * columns + c]; k < cellStart[r * columns + c + 1]; k++) {
+                        int w = cellNodes[k];
+                        if (w == v) continue;
+                        float ddx = x[v] - x[w], ddy = y[v] - y[w];
+                        float d2 = Math.max(ddx * ddx + ddy * ddy, 0.01f);
+                        fx += ddx * k2 / d2; // k^2 / d along the unit vector
+                        fy += ddy * k2 / d2;
+                    }
+                }
+            }
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = adjacent[e];
+                float ddx = x[w] - x[v], ddy = y[w] - y[v];
+                float d = (float) Math.sqrt(ddx * ddx + ddy * ddy);
+                fx += ddx * d / IDEAL_LENGTH; // d^2 / k along the unit vector
+                fy += ddy * d / IDEAL_LENGTH;
+            }
+            dx[v] = fx;
+            dy[v] = fy;
+        }
+
+        private void buildGrid() {
+            float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+            for (int v = 0; v < n; v++) {
+                left = Math.min(left, x[v]);
+                top = Math.min(top, y[v]);
+                right = Math.max(right, x[v]);
+                bottom = Math.max(bottom, y[v]);
+            }
+            gridX = left;
+            gridY = top;
+            columns = Math.max(1, Math.min(2048, (int) ((right - left) / (2 * IDEAL_LENGTH)) + 1));
+            rows = Math.max(1, Math.min(2048, (int) ((bottom - top) / (2 * IDEAL_LENGTH)) + 1));
+            cellStart = new int[columns * rows + 1];
+            cellNodes = new int[n];
+            for (int v = 0; v < n; v++) cellStart[row(y[v]) * columns + column(x[v]) + 1]++;
+            for (int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+            int[] next = Arrays.copyOf(cellStart, columns * rows);
+            for (int v = 0; v < n; v++) cellNodes[next[row(y[v]) * columns + column(x[v])]++] = v;
+        }
+
+        private int column(float value) {
+            return Math.max(0, Math.min(columns - 1, (int) ((value - gridX) / (2 * IDEAL_LENGTH))));
+        }
+
+        private int row(float value) {
+            return Math.max(0, Math.min(rows - 1, (int) ((value - gridY) / (2 * IDEAL_LENGTH))));
+        }
+    }
+
+    // Times culled rendering of a generated topology at a few zoom levels, and one layout step
+    static void renderBenchmark(int count) {
+        Map<String, Node> nodes = new HashMap<>();
+        List<Edge> edges = new ArrayList<>();
+        generateTopology(0, count, 25, nodes, edges);
+        long start = System.nanoTime();
+        TopologyView view = new TopologyView(nodes.values(), edges, Collections.emptySet(), Collections.emptySet());
+        System.out.printf("%,d nodes, %,d edges: view built in %d ms%n", count, view.edgeCount,
+                (System.nanoTime() - start) / 1_000_000);
+
+        BufferedImage image = new BufferedImage(1024, 768, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        double extent = 80 * Math.sqrt(count);
+        for (double scale : new double[]{1, 0.25, 0.05, 768 / extent}) {
+            double originX = extent / 2 - 512 / scale, originY = extent / 2 - 384 / scale; // centred on the grid
+            int drawn = view.render(g, 1024, 768, scale, originX, originY), frames = 10; // warm-up
+            start = System.nanoTime();
+            for (int frame = 0; frame < frames; frame++) {
                 g.setColor(Color.WHITE);
-                g.drawString(node.name, node.position.x - 10, node.position.y + 5);
+                g.fillRect(0, 0, 1024, 768);
+                drawn = view.render(g, 1024, 768, scale, originX, originY);
             }
+            System.out.printf("scale %.3f: %,d nodes and edges drawn, %.1f ms per frame%n", scale, drawn,
+                    (System.nanoTime() - start) / 1e6 / frames);
         }
+        g.dispose();
+        Graphics2D g2 = image.createGraphics();
 
-        // Draw edges between nodes
-        private void drawEdges(Graphics g) {
-            for (Edge edge : edges) {
-                Node nodeA = nodes.get(edge.nodeA);
-                Node nodeB = nodes.get(edge.nodeB);
-                g.setColor(Color.BLACK);
-                g.drawLine(nodeA.position.x, nodeA.position.y, nodeB.position.x, nodeB.position.y);
-                g.setColor(Color.RED);
-                g.drawString("Cost: " + edge.cost + " Bandwidth: " + edge.bandwidth,
-                        (nodeA.position.x + nodeB.position.x) / 2, (nodeA.position.y + nodeB.position.y) / 2);
+        ForceLayout layout = new ForceLayout(view);
+        layout.step(1);
+        start = System.nanoTime();
+        for (int i = 0; i < 5; i++) layout.step(0.5);
+        System.out.printf("Layout step: %.0f ms%n", (System.nanoTime() - start) / 1e6 / 5);
+
+        // What the editor pays on the EDT per change: a layout publish, a highlight and one new node
+        start = System.nanoTime();
+        for (int i = 0; i < view.nodeCount; i++) view.nodes[i].position.setLocation(layout.x[i], layout.y[i]);
+        view.positionsChanged();
+        view.render(g2, 1024, 768, 1, 0, 0);
+        System.out.printf("Positions published and grids rebuilt: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        Set<Edge> path = new HashSet<>(edges.subList(0, 100));
+        start = System.nanoTime();
+        view.setHighlights(Collections.emptySet(), path);
+        System.out.printf("Highlight of 100 edges: %.3f ms%n", (System.nanoTime() - start) / 1e6);
+        start = System.nanoTime();
+        view.addNode(new Node("extra", new Point(0, 0)));
+        view.addEdge(new Edge("extra", "N0", 1, 10));
+        view.render(g2, 1024, 768, 1, 0, 0);
+        System.out.printf("One node and edge added and grids rebuilt: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        g2.dispose();
+    }
+
+    // CanvasPanel: draws the topology through a cached offscreen layer. Drag to pan, wheel to zoom.
+    // The layer is redrawn only when the graph or the view changed. While the user is dragging or
+    // scrolling, the previous layer is shifted and scaled instead, and the full redraw happens once
+    // the input settles.
+    class CanvasPanel extends JPanel {
+        private double scale = 1, originX, originY; // screen = (world - origin) * scale
+        private TopologyView view;
+        private BufferedImage layer;
+        private long layerVersion = -1;
+        private double layerScale, layerOriginX, layerOriginY; // view the layer was drawn for
+        private boolean interacting;
+        private final javax.swing.Timer settle = new javax.swing.Timer(120, e -> {
+            interacting = false;
+            repaint();
+        });
+        private Point dragFrom;
+
+        CanvasPanel() {
+            setBackground(Color.WHITE);
+            settle.setRepeats(false);
+            MouseAdapter mouse = new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    dragFrom = e.getPoint();
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    originX -= (e.getX() - dragFrom.x) / scale;
+                    originY -= (e.getY() - dragFrom.y) / scale;
+                    dragFrom = e.getPoint();
+                    interacting = true;
+                    settle.restart();
+                    repaint();
+                }
+
+                @Override
+                public void mouseWheelMoved(MouseWheelEvent e) {
+                    // Zoom around the cursor: the world point under it stays put
+                    double worldX = originX + e.getX() / scale, worldY = originY + e.getY() / scale;
+                    scale = Math.max(0.002, Math.min(8, scale * Math.pow(1.15, -e.getPreciseWheelRotation())));
+                    originX = worldX - e.getX() / scale;
+                    originY = worldY - e.getY() / scale;
+                    interacting = true;
+                    settle.restart();
+                    repaint();
+                }
+            };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+            addMouseWheelListener(mouse);
+        }
+
+        // What the canvas draws, built on first use and then kept up to date by the editor
+        TopologyView view() {
+            if (view == null) view = new TopologyView(nodes.values(), edges, highlightedNetwork, highlightedPath);
+            return view;
+        }
+
+        // World point at the middle of the panel
+        Point viewCenter() {
+            int width = getWidth() > 0 ? getWidth() : 800, height = getHeight() > 0 ? getHeight() : 500;
+            return new Point((int) (originX + width / 2 / scale), (int) (originY + height / 2 / scale));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            int width = Math.max(getWidth(), 1), height = Math.max(getHeight(), 1);
+            boolean sizeChanged = layer == null || layer.getWidth() != width || layer.getHeight() != height;
+            boolean viewChanged = scale != layerScale || originX != layerOriginX || originY != layerOriginY;
+            if (sizeChanged || layerVersion != graphVersion || (viewChanged && !interacting)) {
+                drawLayer(width, height);
+                g.drawImage(layer, 0, 0, null);
+            } else if (viewChanged) {
+                // Show the old layer moved to the new view until the input settles
+                AffineTransform transform = new AffineTransform();
+                transform.scale(scale / layerScale, scale / layerScale);
+                transform.translate((layerOriginX - originX) * layerScale, (layerOriginY - originY) * layerScale);
+                ((Graphics2D) g).drawImage(layer, transform, null);
+            } else {
+                g.drawImage(layer, 0, 0, null);
             }
         }
+
+        private void drawLayer(int width, int height) {
+            if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+                GraphicsConfiguration config = getGraphicsConfiguration();
+                layer = config != null
+                        ? config.createCompatibleImage(width, height)
+                        : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D graphics = layer.createGraphics();
+            graphics.setColor(getBackground());
+            graphics.fillRect(0, 0, width, height);
+            view().render(graphics, width, height, scale, originX, originY);
+            graphics.dispose();
+            layerVersion = graphVersion;
+            layerScale = scale;
+            layerOriginX = originX;
+            layerOriginY = originY;
+        }
     }
 
     // Node class to represent each server or client
@@ -129,8 +1552,20 @@ public class Question5 extends JFrame {
     }
 
     public static void main(String[] args) {
+        // Run with "bench" to time cached routing on large generated graphs, without the UI
+        if (args.length > 0 && args[0].equals("bench")) {
+            Router.benchmark(100_000, 20_000);
+            Router.benchmark(1_000_000, 2_000);
+            return;
+        }
+        // "renderbench" times drawing 50k nodes without the UI; "large" opens the editor with them
+        if (args.length > 0 && args[0].equals("renderbench")) {
+            renderBenchmark(50_000);
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             Question5 networkGraph = new Question5();
+            if (args.length > 0 && args[0].equals("large")) networkGraph.addGeneratedTopology(50_000, 25);
             networkGraph.setVisible(true);
         });
     }